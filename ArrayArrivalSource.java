@@ -0,0 +1,44 @@
+import java.util.NoSuchElementException;
+
+/**
+ * Class ArrayArrivalSource
+ * 
+ * An arrival source that reads the inter-arrival times
+ * from an int array.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class ArrayArrivalSource implements ArrivalSource {
+
+	private int[] IAT;
+	private int index;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	public ArrayArrivalSource(int[] IAT) {
+		this.IAT = IAT;
+	}
+	
+	public boolean hasNext() {
+		return index < IAT.length;
+	}
+	
+	public long next() {
+		if(index == IAT.length)
+			throw new NoSuchElementException();
+		
+		return IAT[index++];
+	}
+	
+	public long skip(long count) {
+		int skipped = (int)Math.max(0, Math.min(count, IAT.length - index));
+		
+		index += skipped;
+		
+		return skipped;
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * Interface ArrivalSource
+ * 
+ * A sequence of inter-arrival times that is read one value
+ * at a time. Unlike an int array, the sequence does not have 
+ * to fit in memory and its length is not limited to the int
+ * range.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public interface ArrivalSource {
+
+	/**
+	 * Checks whether there are more inter-arrival times.
+	 * 
+	 * @return true if next() can be called
+	 */
+	boolean hasNext();
+	
+	/**
+	 * Returns the next inter-arrival time.
+	 * 
+	 * @return The time between the previous arrival and the next one
+	 * @throws java.util.NoSuchElementException If there are no more arrivals
+	 */
+	long next();
+	
+	/**
+	 * Skips inter-arrival times, as if next() were called
+	 * that many times. Sources that can move ahead without
+	 * reading every value override this.
+	 * 
+	 * @param count Number of inter-arrival times to skip
+	 * @return The number skipped, less than count if the sequence ended
+	 */
+	default long skip(long count) {
+		long skipped = 0;
+		
+		for(; skipped < count && hasNext(); skipped++)
+			next();
+		
+		return skipped;
+	}
+}
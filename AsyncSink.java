@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class AsyncSink
+ *
+ * A simulation sink that hands its records to another sink
+ * on a background thread. The records go through a bounded
+ * ring buffer with a single producer, the simulation thread,
+ * and a single consumer, the writer thread. When the ring is
+ * full the simulation waits for the writer, and when it is
+ * empty the writer waits for the simulation. A waiting thread
+ * is parked and woken by the other one, so neither polls. The
+ * writer is woken once a quarter of the ring is filled, or by
+ * close(), so records are handed over in batches.
+ *
+ * A failure of the other sink is thrown from the next record
+ * and from close().
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class AsyncSink implements SimulationSink {
+
+	private static final byte ARRIVAL = 1;
+	private static final byte RUN = 2;
+	private static final byte DELAY = 3;
+	private static final byte GRANT = 4;
+
+	private SimulationSink delegate;
+	private Thread writer;
+
+	private byte[] tags;
+	private long[] values;
+	private int mask;
+
+	// records the producer adds before it wakes a waiting writer
+	private int batch;
+
+	// records written by the producer and taken by the consumer
+	private volatile long tail;
+	private volatile long head;
+
+	// set by a thread before it parks, checked by the other one after moving tail or head
+	private volatile boolean writerWaiting;
+	private volatile boolean producerWaiting;
+	private volatile Thread producer;
+
+	// arrival sequences, handed over whole and in order of their records
+	private ConcurrentLinkedQueue<int[]> arrivalQueue = new ConcurrentLinkedQueue<int[]>();
+
+	private volatile boolean closed;
+	private volatile Throwable failure;
+
+	/**
+	 * Constructor
+	 *
+	 * Starts the writer thread.
+	 *
+	 * @param delegate Sink the records are written to
+	 * @param capacity Number of records the ring buffer holds, rounded up to a power of two
+	 */
+	public AsyncSink(SimulationSink delegate, int capacity) {
+		if(capacity <= 0 || capacity > (1 << 30))
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+
+		this.delegate = delegate;
+
+		int size = Integer.highestOneBit(capacity);
+
+		if(size < capacity)
+			size <<= 1;
+
+		tags = new byte[size];
+		values = new long[size];
+		mask = size - 1;
+		batch = Math.max(1, size >> 2);
+
+		writer = new Thread(this::drain, "simulation-sink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Logs the arrival sequence. The array is passed to the
+	 * other sink as it is, so it must not be changed later.
+	 *
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	public void arrivals(int[] IAT) {
+		arrivalQueue.add(IAT);
+		put(ARRIVAL, 0);
+	}
+
+	public void beginRun(double alpha) {
+		put(RUN, Double.doubleToRawLongBits(alpha));
+	}
+
+	public void delay(long delay) {
+		put(DELAY, delay);
+	}
+
+	public void grant(long interGrant) {
+		put(GRANT, interGrant);
+	}
+
+	/**
+	 * Adds a record to the ring, waiting while it is full.
+	 *
+	 * @param tag Type of the record
+	 * @param value Value of the record
+	 */
+	private void put(byte tag, long value) {
+		if(closed)
+			throw new IllegalStateException("Sink is closed");
+
+		checkFailure();
+
+		long t = tail;
+
+		while(t - head > mask){
+			producer = Thread.currentThread();
+			producerWaiting = true;
+
+			// the writer moves head or fails after seeing the flag, or before this check
+			if(t - head > mask && failure == null)
+				LockSupport.park(this);
+
+			producerWaiting = false;
+			checkFailure();
+		}
+
+		int i = (int)t & mask;
+		tags[i] = tag;
+		values[i] = value;
+
+		// publishes the record to the writer thread
+		tail = t + 1;
+
+		if(writerWaiting && t + 1 - head >= batch)
+			LockSupport.unpark(writer);
+	}
+
+	private void checkFailure() {
+		if(failure != null)
+			throw new UncheckedIOException(new IOException("Sink writer failed", failure));
+	}
+
+	/**
+	 * Main loop of the writer thread.
+	 */
+	private void drain() {
+		try {
+			long h = head;
+
+			while(true){
+				boolean done = closed;
+				long t = tail;
+
+				if(h == t){
+					if(done)
+						return;
+
+					writerWaiting = true;
+
+					// the producer fills a batch or closes after seeing the flag, or before this check
+					if(tail - h < batch && !closed)
+						LockSupport.park(this);
+
+					writerWaiting = false;
+					continue;
+				}
+
+				for(; h < t; h++){
+					int i = (int)h & mask;
+					dispatch(tags[i], values[i]);
+				}
+
+				head = h;
+
+				if(producerWaiting)
+					LockSupport.unpark(producer);
+			}
+		} catch (Throwable e) {
+			failure = e;
+
+			if(producerWaiting)
+				LockSupport.unpark(producer);
+		}
+	}
+
+	private void dispatch(byte tag, long value) {
+		switch(tag){
+		case ARRIVAL:
+			delegate.arrivals(arrivalQueue.poll());
+			break;
+		case RUN:
+			delegate.beginRun(Double.longBitsToDouble(value));
+			break;
+		case DELAY:
+			delegate.delay(value);
+			break;
+		case GRANT:
+			delegate.grant(value);
+			break;
+		default:
+			throw new IllegalStateException("Unknown record: " + tag);
+		}
+	}
+
+	/**
+	 * Waits until all records are written and closes the
+	 * other sink.
+	 *
+	 * @throws IOException If a record could not be written or the other sink cannot be closed
+	 */
+	public void close() throws IOException {
+		if(closed)
+			return;
+
+		closed = true;
+		LockSupport.unpark(writer);
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the sink", e);
+		}
+
+		try {
+			if(failure != null)
+				throw new IOException("Sink writer failed", failure);
+		} finally {
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Class BinarySink
+ *
+ * A simulation sink that writes everything to a single
+ * binary file, log.bin, in a directory. The file is a
+ * sequence of 9-byte records, a one-byte tag followed by
+ * a little-endian long:
+ *
+ *   ARRIVAL  an inter-arrival time
+ *   RUN      start of a run, the bits of its alpha value
+ *   DELAY    delay of a request
+ *   GRANT    time since the previous grant
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class BinarySink implements SimulationSink {
+
+	public static final byte ARRIVAL = 1;
+	public static final byte RUN = 2;
+	public static final byte DELAY = 3;
+	public static final byte GRANT = 4;
+	public static final int RECORD_SIZE = 9;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	/**
+	 * Constructor
+	 *
+	 * Creates the log file in the given directory,
+	 * replacing any existing one.
+	 *
+	 * @param directory Directory the log file is written to
+	 * @throws IOException If the file cannot be created
+	 */
+	public BinarySink(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		channel = FileChannel.open(directory.resolve("log.bin"), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+		buffer = ByteBuffer.allocateDirect(BUFFER_SIZE - (BUFFER_SIZE % RECORD_SIZE));
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public void arrivals(int[] IAT) {
+		for(int i = 0; i < IAT.length; i++)
+			put(ARRIVAL, IAT[i]);
+	}
+
+	public void beginRun(double alpha) {
+		put(RUN, Double.doubleToRawLongBits(alpha));
+	}
+
+	public void delay(long delay) {
+		put(DELAY, delay);
+	}
+
+	public void grant(long interGrant) {
+		put(GRANT, interGrant);
+	}
+
+	/**
+	 * Appends a record, writing the buffer out when it is full.
+	 *
+	 * @param tag Type of the record
+	 * @param value Value of the record
+	 */
+	private void put(byte tag, long value) {
+		if(buffer.remaining() < RECORD_SIZE){
+			try {
+				flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		buffer.put(tag);
+		buffer.putLong(value);
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	/**
+	 * Writes the buffered records and closes the log file.
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	public void close() throws IOException {
+		if(!channel.isOpen())
+			return;
+
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/**
+ * Class BreakEvenKernel
+ *
+ * Runs the break-even algorithm over the traces of a range
+ * of devices, writing the results of every device into the
+ * arrays of a FleetReport. The state of a device is kept in
+ * a Simulator.Lane that is reused for every device, so no
+ * object is created per device or per arrival. Arrivals are
+ * handled by Simulator.arrive(), so the results of a device
+ * are identical to the report of a Simulator run over its
+ * trace.
+ *
+ * The delays of the requests of a bundle are recovered from
+ * the trace when the bundle is granted, so no buffer of
+ * arrival times is needed either.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+final class BreakEvenKernel {
+
+	private BreakEvenKernel() {
+	}
+
+	/**
+	 * Simulates the devices from..to-1.
+	 *
+	 * @param T Radio tail time of every device
+	 * @param alpha Weight given to delay by every device
+	 * @param traces Inter-arrival times of every device
+	 * @param from Index of the first device
+	 * @param to Index after the last device
+	 * @param out Report the results of the devices are written to
+	 * @param delays Histogram the request delays are added to
+	 * @param gaps Histogram the inter-grant times are added to
+	 */
+	static void run(int[] T, double[] alpha, int[][] traces, int from, int to,
+			FleetReport out, Histogram delays, Histogram gaps) {
+		Simulator.Lane lane = new Simulator.Lane();
+
+		for(int d = from; d < to; d++)
+			runDevice(d, T[d], alpha[d], traces[d], lane, out, delays, gaps);
+	}
+
+	/**
+	 * Simulates a single device.
+	 */
+	private static void runDevice(int d, int T, double alpha, int[] IAT, Simulator.Lane lane,
+			FleetReport out, Histogram delays, Histogram gaps) {
+		// a device without arrivals never turns its radio on
+		if(IAT.length == 0)
+			return;
+
+		lane.reset();
+
+		double defaultCost = 0;
+
+		for(int index = 0; index < IAT.length; index++)
+		{
+			int gap = IAT[index];
+
+			if(lane.lastArrival > 0)
+				defaultCost += Math.min(gap, T);
+
+			double nextIAT = (index + 1 == IAT.length) ? Double.MAX_VALUE : IAT[index + 1];
+
+			long grantTime = Simulator.arrive(lane, alpha, T, gap, nextIAT, gaps);
+
+			if(grantTime < 0)
+				continue;
+
+			// walk back over the arrivals of the bundle
+			long arrival = lane.lastArrival;
+
+			for(int k = 0; k < lane.granted; k++){
+				delays.add(grantTime - arrival);
+				arrival -= IAT[index - k];
+			}
+		}
+
+		if(lane.bufferCount > 0)
+			throw new IllegalStateException("The last bundle of device " + d + " was never granted");
+
+		defaultCost += T;
+
+		// Add the tail energy after last grant
+		out.set(d, lane.energy + T, lane.latency, defaultCost, lane.grantCount);
+	}
+}
@@ -0,0 +1,123 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class CheckpointWriter
+ *
+ * Writes the checkpoints of a StreamSimulator run to a file
+ * on a background thread. Only the latest checkpoint matters,
+ * so a checkpoint handed over while the previous one is still
+ * waiting replaces it, and the simulation never waits for the
+ * disk.
+ *
+ * A failure to write a checkpoint is thrown from the next
+ * submit() and from close().
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class CheckpointWriter {
+
+	private Path file;
+	private Thread writer;
+
+	// latest checkpoint that is not written yet
+	private AtomicReference<StreamSimulator.Checkpoint> pending = new AtomicReference<StreamSimulator.Checkpoint>();
+
+	private volatile long written;
+	private volatile boolean closed;
+	private volatile Throwable failure;
+
+	/**
+	 * Constructor
+	 *
+	 * Starts the writer thread.
+	 *
+	 * @param file Path of the checkpoint file, which is replaced by every checkpoint
+	 */
+	public CheckpointWriter(Path file) {
+		this.file = file;
+
+		writer = new Thread(this::drain, "checkpoint-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Hands a checkpoint to the writer thread.
+	 *
+	 * @param checkpoint The checkpoint, which must not be changed later
+	 */
+	public void submit(StreamSimulator.Checkpoint checkpoint) {
+		if(closed)
+			throw new IllegalStateException("Writer is closed");
+
+		if(failure != null)
+			throw new UncheckedIOException(new IOException("Checkpoint writer failed", failure));
+
+		// the writer is already due to take a replaced checkpoint
+		if(pending.getAndSet(checkpoint) == null)
+			LockSupport.unpark(writer);
+	}
+
+	/**
+	 * Returns the number of checkpoints written
+	 *
+	 * @return The number of checkpoints written to the file so far
+	 */
+	public long getWrittenCount() {
+		return written;
+	}
+
+	/**
+	 * Main loop of the writer thread.
+	 */
+	private void drain() {
+		try {
+			while(true){
+				boolean done = closed;
+				StreamSimulator.Checkpoint checkpoint = pending.getAndSet(null);
+
+				if(checkpoint == null){
+					if(done)
+						return;
+
+					LockSupport.park(this);
+					continue;
+				}
+
+				checkpoint.write(file);
+				written++;
+			}
+		} catch (Throwable e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * Waits until the last checkpoint is written and stops
+	 * the writer thread.
+	 *
+	 * @throws IOException If a checkpoint could not be written
+	 */
+	public void close() throws IOException {
+		if(closed)
+			return;
+
+		closed = true;
+		LockSupport.unpark(writer);
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while closing the checkpoint writer", e);
+		}
+
+		if(failure != null)
+			throw new IOException("Checkpoint writer failed", failure);
+	}
+}
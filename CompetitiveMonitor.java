@@ -0,0 +1,234 @@
+/**
+ * Class CompetitiveMonitor
+ *
+ * Runs the break-even algorithm and the optimal offline
+ * solution over the same arrival source in a single pass.
+ * Every inter-arrival time read by a StreamSimulator is
+ * appended to an IncrementalOffline right away, so both see
+ * the same arrivals and the source is read only once. Neither
+ * keeps the arrivals, so memory stays bounded however long the
+ * trace is.
+ *
+ * Every interval arrivals, a snapshot of the energy, latency
+ * and competitive ratio of the trace so far is passed to a
+ * listener, which can stop the run. Snapshots are taken when
+ * break-even has no buffered requests, at the first grant at
+ * or after the interval, and the online cost includes the tail
+ * after the last grant as if the trace ended there. The last
+ * snapshot, taken after the last arrival, holds the same
+ * costs as separate Simulator and Offline runs over the trace.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class CompetitiveMonitor {
+
+	public static final long DEFAULT_INTERVAL = 1 << 16;
+
+	private int T;
+	private double alpha;
+	private ArrivalSource source;
+	private long interval = DEFAULT_INTERVAL;
+	private Listener listener;
+
+	private boolean aborted;
+
+	/**
+	 * Receives the snapshots of a run.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called with every snapshot, including the last one.
+		 *
+		 * @param snapshot Costs of the trace so far
+		 * @return true to go on, false to stop the run
+		 */
+		boolean snapshot(Snapshot snapshot);
+	}
+
+	/**
+	 * Costs of break-even and of the optimal solution for
+	 * the arrivals read so far.
+	 */
+	public static class Snapshot {
+
+		private long arrivals;
+		private Report online;
+		private Report optimal;
+		private long window;
+		private boolean last;
+
+		Snapshot(long arrivals, Report online, Report optimal, long window, boolean last) {
+			this.arrivals = arrivals;
+			this.online = online;
+			this.optimal = optimal;
+			this.window = window;
+			this.last = last;
+		}
+
+		/**
+		 * Returns the number of arrivals
+		 *
+		 * @return The number of arrivals read so far
+		 */
+		public long getArrivalCount() {
+			return arrivals;
+		}
+
+		/**
+		 * Getter for the online report
+		 *
+		 * @return The costs and grant count of break-even
+		 */
+		public Report getOnlineReport() {
+			return online;
+		}
+
+		/**
+		 * Getter for the optimal report
+		 *
+		 * @return The costs and grant count of the optimal solution
+		 */
+		public Report getOptimalReport() {
+			return optimal;
+		}
+
+		/**
+		 * Returns the competitive ratio
+		 *
+		 * @return The total cost of break-even over the optimal total cost
+		 */
+		public double getRatio() {
+			return online.getTotalCost() / optimal.getTotalCost();
+		}
+
+		/**
+		 * Returns the number of arrivals the optimal solution
+		 * keeps, which bounds the memory used by the run.
+		 *
+		 * @return The window of IncrementalOffline
+		 */
+		public long getWindow() {
+			return window;
+		}
+
+		/**
+		 * Checks whether this is the snapshot after the last arrival
+		 *
+		 * @return true if the trace has ended
+		 */
+		public boolean isLast() {
+			return last;
+		}
+
+		/**
+		 * Returns a one-line string representation of the snapshot
+		 */
+		public String toString() {
+			return "Arrivals: " + arrivals + "\tCR: " + getRatio()
+					+ "\tEnergy: " + online.getEnergy() + "/" + optimal.getEnergy()
+					+ "\tLatency: " + online.getLatency() + "/" + optimal.getLatency();
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param T Radio tail time
+	 * @param alpha Weight given to delay
+	 * @param source Sequence of inter-arrival times
+	 */
+	public CompetitiveMonitor(int T, double alpha, ArrivalSource source) {
+		this.T = T;
+		this.alpha = alpha;
+		this.source = source;
+	}
+
+	/**
+	 * Setter for the snapshot interval
+	 *
+	 * @param interval Number of arrivals between snapshots
+	 */
+	public void setInterval(long interval) {
+		if(interval <= 0)
+			throw new IllegalArgumentException("Invalid interval: " + interval);
+
+		this.interval = interval;
+	}
+
+	/**
+	 * Setter for the listener
+	 *
+	 * @param listener Receiver of the snapshots, null for none
+	 */
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Runs both algorithms until the source ends or the
+	 * listener stops the run.
+	 *
+	 * @return The last snapshot of the run, null if the source was empty
+	 */
+	public Snapshot run() {
+		StreamSimulator online = new StreamSimulator(T, source);
+		IncrementalOffline optimal = new IncrementalOffline(T, alpha);
+
+		online.setAlpha(alpha);
+		online.initialize();
+		aborted = false;
+
+		Snapshot snapshot = null;
+		long due = interval;
+		long gap;
+
+		while((gap = online.advance()) >= 0)
+		{
+			optimal.append(gap);
+
+			boolean last = !online.hasNext();
+
+			if(last || (online.getArrivalCount() >= due && online.getBufferCount() == 0))
+			{
+				snapshot = snapshot(online, optimal, last);
+				due = online.getArrivalCount() + interval;
+
+				if(listener != null && !listener.snapshot(snapshot) && !last){
+					aborted = true;
+					break;
+				}
+			}
+		}
+
+		return snapshot;
+	}
+
+	/**
+	 * Checks whether the last run was stopped by the listener
+	 *
+	 * @return true if the run ended before the source
+	 */
+	public boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Takes a snapshot of both algorithms.
+	 */
+	private Snapshot snapshot(StreamSimulator online, IncrementalOffline optimal, boolean last) {
+		Report report = online.getReport();
+
+		// close the tail after the last grant, as at the end of the trace
+		if(!last){
+			double energy = report.getEnergy() + T;
+
+			report = new Report(energy, report.getLatency(), energy + report.getLatency(),
+					report.getDefaultCost() + T, report.getGrantCount(),
+					report.getDelayHistogram(), report.getGapHistogram());
+		}
+
+		return new Snapshot(online.getArrivalCount(), report, optimal.getReport(), optimal.getWindow(), last);
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Class EventHeap
+ * 
+ * A priority queue of events for discrete-event simulation
+ * that does not allocate an object per event. Every event
+ * is a primitive long key that holds the event time in its 
+ * upper bits and the event type in its lowest bits. The 
+ * keys are kept in a binary min-heap of longs.
+ * 
+ * The type bits give the same order as Event.compareTo for
+ * events that occur at the same time. Grants come before 
+ * anything else, and End events come after all others.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class EventHeap {
+
+	// event types, in the order they are handled at equal times
+	public static final int GRANT = 0;
+	public static final int ARRIVAL = 1;
+	public static final int END = 2;
+	
+	private static final int TYPE_BITS = 2;
+	private static final long TYPE_MASK = (1L << TYPE_BITS) - 1;
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private long[] heap;
+	private int size;
+	
+	/**
+	 * Default constructor
+	 */
+	public EventHeap() {
+		heap = new long[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * Returns the time of an event key.
+	 * 
+	 * @param key Event key
+	 * @return The time when the event will occur
+	 */
+	public static long time( long key ) {
+		return key >> TYPE_BITS;
+	}
+	
+	/**
+	 * Returns the type of an event key.
+	 * 
+	 * @param key Event key
+	 * @return One of GRANT, ARRIVAL or END
+	 */
+	public static int type( long key ) {
+		return (int)(key & TYPE_MASK);
+	}
+	
+	/**
+	 * Adds an event.
+	 * 
+	 * @param time The time of the event
+	 * @param type One of GRANT, ARRIVAL or END
+	 */
+	public void add( long time, int type ) {
+		if(size == heap.length)
+			heap = java.util.Arrays.copyOf(heap, 2 * heap.length);
+		
+		long key = (time << TYPE_BITS) | type;
+		int i = size++;
+		
+		// move the new key up while it precedes its parent
+		while(i > 0){
+			int parent = (i - 1) >>> 1;
+			
+			if(heap[parent] <= key)
+				break;
+			
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		
+		heap[i] = key;
+	}
+	
+	/**
+	 * Adds an event object, for code that still creates
+	 * Arrival, Grant and End events.
+	 * 
+	 * @param event The event to add
+	 */
+	public void add( Event event ) {
+		if ( event instanceof Grant ) {
+			add( event.getTime(), GRANT );
+		} else if ( event instanceof Arrival ) {
+			add( event.getTime(), ARRIVAL );
+		} else if ( event instanceof End ) {
+			add( event.getTime(), END );
+		} else {
+			throw new IllegalArgumentException( "Event type not recognized: " + event );
+		}
+	}
+	
+	/**
+	 * Removes the next event.
+	 * 
+	 * @return The key of the event that occurs first
+	 * @throws java.util.NoSuchElementException If there is no event
+	 */
+	public long remove() {
+		if(size == 0)
+			throw new java.util.NoSuchElementException();
+		
+		long first = heap[0];
+		long key = heap[--size];
+		int i = 0;
+		
+		// move the last key down from the root
+		while(true){
+			int child = 2 * i + 1;
+			
+			if(child >= size)
+				break;
+			
+			if(child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+			
+			if(key <= heap[child])
+				break;
+			
+			heap[i] = heap[child];
+			i = child;
+		}
+		
+		heap[i] = key;
+		
+		return first;
+	}
+	
+	/**
+	 * Returns the number of pending events
+	 * 
+	 * @return The number of events in the heap
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Checks whether there is no pending event
+	 * 
+	 * @return true if the heap is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	/**
+	 * Removes all events.
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
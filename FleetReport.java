@@ -0,0 +1,247 @@
+/**
+ * Class FleetReport
+ *
+ * Holds the results of a fleet simulation. The results of
+ * the individual devices are kept in primitive arrays, one
+ * per metric, and can be turned into a Report per device on
+ * demand. The report also holds fleet-wide totals and the
+ * distributions of
+ *
+ *   - the delays of all requests of all devices,
+ *   - the times between consecutive grants of all devices,
+ *   - the energy cost of the devices,
+ *   - the mean delay of a request of the devices,
+ *   - the grant counts of the devices.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class FleetReport {
+
+	private double[] alpha;
+	private int[] arrivals;
+
+	// results of every device
+	private double[] energy;
+	private double[] latency;
+	private double[] defaultCost;
+	private long[] grantCount;
+
+	// fleet-wide distributions
+	private Histogram delays = new Histogram();
+	private Histogram gaps = new Histogram();
+	private Histogram deviceEnergy = new Histogram();
+	private Histogram deviceMeanDelay = new Histogram();
+	private Histogram deviceGrants = new Histogram();
+
+	// fleet-wide totals
+	private double totalEnergy;
+	private double totalLatency;
+	private double totalDefaultCost;
+	private long totalGrants;
+	private long totalArrivals;
+
+	/**
+	 * Constructor
+	 *
+	 * @param alpha Weight given to delay by every device
+	 * @param arrivals Number of arrivals of every device
+	 */
+	FleetReport(double[] alpha, int[] arrivals) {
+		int devices = alpha.length;
+
+		this.alpha = alpha;
+		this.arrivals = arrivals;
+
+		energy = new double[devices];
+		latency = new double[devices];
+		defaultCost = new double[devices];
+		grantCount = new long[devices];
+	}
+
+	/**
+	 * Stores the results of a device.
+	 */
+	void set(int device, double energy, double latency, double defaultCost, long grantCount) {
+		this.energy[device] = energy;
+		this.latency[device] = latency;
+		this.defaultCost[device] = defaultCost;
+		this.grantCount[device] = grantCount;
+	}
+
+	/**
+	 * Adds the request delays and inter-grant times of a shard.
+	 */
+	void merge(Histogram delays, Histogram gaps) {
+		this.delays.merge(delays);
+		this.gaps.merge(gaps);
+	}
+
+	/**
+	 * Computes the totals and the per-device distributions
+	 * once all devices are stored.
+	 */
+	void summarize() {
+		for(int d = 0; d < energy.length; d++){
+			totalEnergy += energy[d];
+			totalLatency += latency[d];
+			totalDefaultCost += defaultCost[d];
+			totalGrants += grantCount[d];
+			totalArrivals += arrivals[d];
+
+			if(arrivals[d] == 0)
+				continue;
+
+			deviceEnergy.add(Math.round(energy[d]));
+			deviceGrants.add(grantCount[d]);
+			deviceMeanDelay.add(Math.round(latency[d] / (alpha[d] * arrivals[d])));
+		}
+	}
+
+	/**
+	 * Returns the number of devices
+	 *
+	 * @return The number of devices in the fleet
+	 */
+	public int getDeviceCount() {
+		return energy.length;
+	}
+
+	/**
+	 * Creates a report of the run of a single device.
+	 *
+	 * @param device Index of the device
+	 * @return A report of the device, without histograms
+	 */
+	public Report getReport(int device) {
+		return new Report(energy[device], latency[device], energy[device] + latency[device],
+				defaultCost[device], grantCount[device]);
+	}
+
+	/**
+	 * Creates a report of the whole fleet. Costs and grant
+	 * counts are summed over the devices, and the histograms
+	 * hold the request delays and inter-grant times of all
+	 * devices.
+	 *
+	 * @return A report of the fleet
+	 */
+	public Report getFleetReport() {
+		return new Report(totalEnergy, totalLatency, totalEnergy + totalLatency, totalDefaultCost,
+				totalGrants, delays, gaps);
+	}
+
+	/**
+	 * Getter for the energy cost of a device
+	 *
+	 * @param device Index of the device
+	 * @return The energy cost of the device
+	 */
+	public double getEnergy(int device) {
+		return energy[device];
+	}
+
+	/**
+	 * Getter for the latency cost of a device
+	 *
+	 * @param device Index of the device
+	 * @return The latency cost of the device
+	 */
+	public double getLatency(int device) {
+		return latency[device];
+	}
+
+	/**
+	 * Getter for the default cost of a device
+	 *
+	 * @param device Index of the device
+	 * @return The cost of the default algorithm for the device
+	 */
+	public double getDefaultCost(int device) {
+		return defaultCost[device];
+	}
+
+	/**
+	 * Getter for the grant count of a device
+	 *
+	 * @param device Index of the device
+	 * @return The number of grants made for the device
+	 */
+	public long getGrantCount(int device) {
+		return grantCount[device];
+	}
+
+	/**
+	 * Returns the number of arrivals
+	 *
+	 * @return The number of arrivals of all devices
+	 */
+	public long getTotalArrivals() {
+		return totalArrivals;
+	}
+
+	/**
+	 * Getter for the request delay histogram
+	 *
+	 * @return The distribution of the delays of all requests
+	 */
+	public Histogram getDelayHistogram() {
+		return delays;
+	}
+
+	/**
+	 * Getter for the inter-grant histogram
+	 *
+	 * @return The distribution of the inter-grant times of all devices
+	 */
+	public Histogram getGapHistogram() {
+		return gaps;
+	}
+
+	/**
+	 * Getter for the device energy histogram
+	 *
+	 * @return The distribution of the energy cost of the devices, rounded
+	 */
+	public Histogram getDeviceEnergyHistogram() {
+		return deviceEnergy;
+	}
+
+	/**
+	 * Getter for the device delay histogram
+	 *
+	 * @return The distribution of the mean request delay of the devices, rounded
+	 */
+	public Histogram getDeviceMeanDelayHistogram() {
+		return deviceMeanDelay;
+	}
+
+	/**
+	 * Getter for the device grant histogram
+	 *
+	 * @return The distribution of the grant counts of the devices
+	 */
+	public Histogram getDeviceGrantHistogram() {
+		return deviceGrants;
+	}
+
+	/**
+	 * Returns a string representation of the fleet totals
+	 * and of the per-device distributions.
+	 */
+	public String toString() {
+		String output = "";
+
+		output += "Devices: " + getDeviceCount();
+		output += "\nArrivals: " + totalArrivals;
+		output += "\n" + getFleetReport();
+		output += "\nDevice energy p50/p99/max: " + deviceEnergy.quantile(0.5) + "/"
+				+ deviceEnergy.quantile(0.99) + "/" + deviceEnergy.getMax();
+		output += "\nDevice mean delay p50/p99/max: " + deviceMeanDelay.quantile(0.5) + "/"
+				+ deviceMeanDelay.quantile(0.99) + "/" + deviceMeanDelay.getMax();
+		output += "\nDevice grants p50/p99/max: " + deviceGrants.quantile(0.5) + "/"
+				+ deviceGrants.quantile(0.99) + "/" + deviceGrants.getMax();
+
+		return output;
+	}
+}
@@ -0,0 +1,148 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class FleetSimulator
+ *
+ * Simulates the break-even bundling algorithm for a fleet of
+ * independent devices, each with its own tail time, alpha
+ * value and sequence of inter-arrival times. The devices are
+ * cut into shards of consecutive devices, and the shards are
+ * simulated in parallel. No Simulator object is created per
+ * device: the parameters and the results of the devices are
+ * kept in primitive arrays, and every shard collects its own
+ * distributions, which are merged in shard order at the end.
+ *
+ * The results of every device are identical to the report of
+ * a Simulator run over the trace of the device. A device
+ * without arrivals has all its results set to 0.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class FleetSimulator {
+
+	public static final int DEFAULT_SHARD_SIZE = 1024;
+
+	private int[] T;
+	private double[] alpha;
+	private int[][] traces;
+	private ForkJoinPool pool;
+	private int shardSize = DEFAULT_SHARD_SIZE;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T Radio tail time of every device
+	 * @param alpha Weight given to delay by every device
+	 * @param traces Inter-arrival times of every device
+	 * @param pool Pool the shards are simulated on
+	 */
+	public FleetSimulator(int[] T, double[] alpha, int[][] traces, ForkJoinPool pool) {
+		if(T.length != traces.length || alpha.length != traces.length)
+			throw new IllegalArgumentException("Expected one tail time and one alpha value per device");
+
+		this.T = T;
+		this.alpha = alpha;
+		this.traces = traces;
+		this.pool = pool;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Simulates the shards on the common pool.
+	 *
+	 * @param T Radio tail time of every device
+	 * @param alpha Weight given to delay by every device
+	 * @param traces Inter-arrival times of every device
+	 */
+	public FleetSimulator(int[] T, double[] alpha, int[][] traces) {
+		this(T, alpha, traces, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Setter for the number of devices per shard
+	 *
+	 * @param shardSize Number of consecutive devices simulated by one task
+	 */
+	public void setShardSize(int shardSize) {
+		if(shardSize <= 0)
+			throw new IllegalArgumentException("Invalid shard size: " + shardSize);
+
+		this.shardSize = shardSize;
+	}
+
+	/**
+	 * Simulates all devices.
+	 *
+	 * @return The results of the devices and of the fleet
+	 */
+	public FleetReport run() {
+		int devices = traces.length;
+		int[] arrivals = new int[devices];
+
+		for(int d = 0; d < devices; d++)
+			arrivals[d] = traces[d].length;
+
+		FleetReport report = new FleetReport(alpha, arrivals);
+
+		int shards = (int)(((long)devices + shardSize - 1) / shardSize);
+		Histogram[] delays = new Histogram[shards];
+		Histogram[] gaps = new Histogram[shards];
+
+		pool.invoke(new ShardTask(report, delays, gaps, 0, shards));
+
+		for(int s = 0; s < shards; s++)
+			report.merge(delays[s], gaps[s]);
+
+		report.summarize();
+
+		return report;
+	}
+
+	/**
+	 * Task that simulates a range of shards, splitting the
+	 * range until a single shard is left.
+	 */
+	private class ShardTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private FleetReport report;
+		private Histogram[] delays;
+		private Histogram[] gaps;
+		private int from;
+		private int to;
+
+		ShardTask(FleetReport report, Histogram[] delays, Histogram[] gaps, int from, int to)
+		{
+			this.report = report;
+			this.delays = delays;
+			this.gaps = gaps;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > 1){
+				int middle = (from + to) >>> 1;
+				invokeAll(new ShardTask(report, delays, gaps, from, middle),
+						new ShardTask(report, delays, gaps, middle, to));
+				return;
+			}
+
+			for(int s = from; s < to; s++){
+				int first = (int)((long)s * shardSize);
+				int last = (int)Math.min(traces.length, (long)first + shardSize);
+
+				delays[s] = new Histogram();
+				gaps[s] = new Histogram();
+
+				BreakEvenKernel.run(T, alpha, traces, first, last, report, delays[s], gaps[s]);
+			}
+		}
+	}
+}
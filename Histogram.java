@@ -0,0 +1,244 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Class Histogram
+ *
+ * A histogram of non-negative long values with logarithmic
+ * buckets. Values below 64 have a bucket of their own. Above
+ * that, every power of two is split into 32 buckets of equal
+ * width, so a value is known to within about 3% of itself.
+ * The histogram has a fixed size of about 15 KB, 1888
+ * buckets of 8 bytes, no matter how many values it holds,
+ * and histograms can be merged.
+ *
+ * Quantiles are reported as the largest value of the bucket
+ * they fall in, but never more than the largest value added.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class Histogram {
+
+	// number of buckets per power of two, as a power of two
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+
+	// values below this limit have a bucket of their own
+	private static final int EXACT_LIMIT = 2 * SUB_COUNT;
+
+	private static final int BUCKET_COUNT = EXACT_LIMIT + ((62 - SUB_BITS) * SUB_COUNT);
+
+	private long[] buckets = new long[BUCKET_COUNT];
+	private long count;
+	private long max;
+	private double sum;
+
+	/**
+	 * Adds a value to the histogram.
+	 *
+	 * @param value The value, not negative
+	 */
+	public void add(long value) {
+		add(value, 1);
+	}
+
+	/**
+	 * Adds a value to the histogram a number of times.
+	 *
+	 * @param value The value, not negative
+	 * @param times Number of times the value is added
+	 */
+	public void add(long value, long times) {
+		if(value < 0)
+			throw new IllegalArgumentException("Negative value: " + value);
+
+		buckets[bucket(value)] += times;
+		count += times;
+		sum += (double)value * times;
+
+		if(value > max)
+			max = value;
+	}
+
+	/**
+	 * Adds all the values of another histogram to this one.
+	 *
+	 * @param other The other histogram
+	 */
+	public void merge(Histogram other) {
+		for(int b = 0; b < BUCKET_COUNT; b++)
+			buckets[b] += other.buckets[b];
+
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * Returns a copy of the histogram.
+	 *
+	 * @return A histogram with the same values
+	 */
+	public Histogram copy() {
+		Histogram copy = new Histogram();
+		copy.merge(this);
+
+		return copy;
+	}
+
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		Arrays.fill(buckets, 0);
+		count = 0;
+		max = 0;
+		sum = 0;
+	}
+
+	/**
+	 * Returns the value below or at which the given fraction
+	 * of the values lie.
+	 *
+	 * @param q The fraction, between 0 and 1
+	 * @return The quantile, or 0 if the histogram is empty
+	 */
+	public long quantile(double q) {
+		if(q < 0 || q > 1)
+			throw new IllegalArgumentException("Invalid quantile: " + q);
+
+		if(count == 0)
+			return 0;
+
+		long rank = Math.max(1, (long)Math.ceil(q * count));
+		long seen = 0;
+
+		for(int b = 0; b < BUCKET_COUNT; b++){
+			seen += buckets[b];
+
+			if(seen >= rank)
+				return Math.min(highestValue(b), max);
+		}
+
+		return max;
+	}
+
+	/**
+	 * Returns the number of values
+	 *
+	 * @return The number of values added
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns the largest value
+	 *
+	 * @return The largest value added, or 0 if the histogram is empty
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the mean of the values
+	 *
+	 * @return The mean of the values, or 0 if the histogram is empty
+	 */
+	public double getMean() {
+		return (count == 0) ? 0 : sum / count;
+	}
+
+	/**
+	 * Writes the histogram in a compact form, with only
+	 * the buckets that hold values.
+	 *
+	 * @param out Destination of the histogram
+	 * @throws IOException If writing fails
+	 */
+	void write(DataOutput out) throws IOException {
+		int used = 0;
+
+		for(int b = 0; b < BUCKET_COUNT; b++)
+			if(buckets[b] != 0)
+				used++;
+
+		out.writeLong(count);
+		out.writeLong(max);
+		out.writeDouble(sum);
+		out.writeInt(used);
+
+		for(int b = 0; b < BUCKET_COUNT; b++){
+			if(buckets[b] != 0){
+				out.writeShort(b);
+				out.writeLong(buckets[b]);
+			}
+		}
+	}
+
+	/**
+	 * Reads a histogram written by write().
+	 *
+	 * @param in Source of the histogram
+	 * @return The histogram
+	 * @throws IOException If reading fails or the data is not a histogram
+	 */
+	static Histogram read(DataInput in) throws IOException {
+		Histogram histogram = new Histogram();
+
+		histogram.count = in.readLong();
+		histogram.max = in.readLong();
+		histogram.sum = in.readDouble();
+
+		int used = in.readInt();
+
+		if(used < 0 || used > BUCKET_COUNT)
+			throw new IOException("Invalid histogram");
+
+		for(int k = 0; k < used; k++){
+			int b = in.readUnsignedShort();
+
+			if(b >= BUCKET_COUNT)
+				throw new IOException("Invalid histogram bucket: " + b);
+
+			histogram.buckets[b] = in.readLong();
+		}
+
+		return histogram;
+	}
+
+	/**
+	 * Finds the bucket of a value.
+	 *
+	 * @param value The value, not negative
+	 * @return Index of the bucket
+	 */
+	private static int bucket(long value) {
+		if(value < EXACT_LIMIT)
+			return (int)value;
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+
+		return EXACT_LIMIT + ((shift - 1) * SUB_COUNT) + (int)(value >>> shift) - SUB_COUNT;
+	}
+
+	/**
+	 * Returns the largest value that falls into a bucket.
+	 *
+	 * @param b Index of the bucket
+	 * @return The largest value of the bucket
+	 */
+	private static long highestValue(int b) {
+		if(b < EXACT_LIMIT)
+			return b;
+
+		int shift = ((b - EXACT_LIMIT) / SUB_COUNT) + 1;
+		long mantissa = SUB_COUNT + ((b - EXACT_LIMIT) % SUB_COUNT);
+
+		return ((mantissa + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,480 @@
+/**
+ * Class HullOffline
+ *
+ * Calculates the same optimal offline solution as the
+ * Offline class in O(n log n) time, where n is the number
+ * of arrivals.
+ *
+ * With prefix sums of the arrival times, the cost of ending
+ * the last bundle at arrival i after a grant at arrival p
+ * is a linear function of arrival[i] whose slope and
+ * intercept only depend on p. Two regimes are kept apart.
+ * When arrival[i] - arrival[p] >= T the energy term is T,
+ * and these p form a prefix of the arrivals that only grows.
+ * Otherwise the energy term is arrival[i] - arrival[p],
+ * and these p form a sliding window. The lower envelope of
+ * the lines in each regime is kept as a convex hull, so the
+ * best p is found by binary search instead of a full scan.
+ *
+ * The sliding window is kept as two hulls. New lines are
+ * added to the back hull. The front hull is built from the
+ * back of the window towards its front, recording every
+ * change, so that the oldest line can be removed by undoing
+ * its insertion.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ *
+ */
+public class HullOffline {
+
+	// parameters of the bundling problem
+	private double alpha;
+	private int T;
+
+	//array representing inter-arrival times
+	private int[] IAT;
+
+	//array representing actual arrival times
+	private int[] arrival;
+
+	//prefix sums of the arrival times
+	private long[] prefix;
+
+	//optimal cost and latency of the first i arrivals
+	private double[] Cost;
+	private double[] D;
+
+	//intercepts of the lines of both regimes, slope of line p is -alpha * p
+	private double[] shortIntercept;
+	private double[] longIntercept;
+
+	//hull of the lines whose energy term is T
+	private int[] longHull;
+	private int longSize;
+
+	//back hull of the sliding window
+	private int[] backHull;
+	private int backSize;
+
+	//front hull of the sliding window and the record of its changes
+	private int[] frontHull;
+	private int frontSize;
+	private int[] undoPosition;
+	private int[] undoLine;
+	private int[] undoSize;
+	private int undoCount;
+
+	//performance metrics characterizing the optimal result
+	private double latency;
+	private double totalCost;
+	private int grantCount;
+
+	//times at which the optimal solution makes its grants
+	private int[] grantTimes;
+
+	// distributions of request delays and inter-grant times of the solution
+	private Histogram delays = new Histogram();
+	private Histogram gaps = new Histogram();
+
+	//unweighted energy and delay of the optimal schedule
+	private long radioOnTime;
+	private long totalDelay;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T tail time of the radio
+	 * @param IAT Array representing inter-arrival times
+	 */
+	public HullOffline(int T, int[] IAT)
+	{
+		this.T = T;
+		this.IAT = IAT;
+		arrival = new int[IAT.length + 1];
+		prefix = new long[IAT.length + 1];
+	}
+
+	/**
+	 * Initialize all performance metrics to 0
+	 */
+	public void initialize()
+	{
+		totalCost = 0;
+		latency = 0;
+		grantCount = 0;
+		grantTimes = new int[0];
+		radioOnTime = 0;
+		totalDelay = 0;
+	}
+
+	/**
+	 * Sets the alpha value of the problem
+	 *
+	 * @param alpha Weight associated with delay, must be positive
+	 */
+	public void setAlpha(double alpha)
+	{
+		if(alpha <= 0)
+			throw new IllegalArgumentException("Alpha must be positive: " + alpha);
+
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Computes the values of optimal latency, total cost
+	 * and grant count.
+	 */
+	public void run()
+	{
+		int n = IAT.length;
+
+		Cost = new double[n + 1];
+		D = new double[n + 1];
+		shortIntercept = new double[n + 1];
+		longIntercept = new double[n + 1];
+		longHull = new int[n + 1];
+		backHull = new int[n + 1];
+		frontHull = new int[n + 1];
+		undoPosition = new int[n + 1];
+		undoLine = new int[n + 1];
+		undoSize = new int[n + 1];
+		longSize = 0;
+		backSize = 0;
+		frontSize = 0;
+		undoCount = 0;
+
+		int[] previousGrant = new int[n + 1];
+
+		arrival[0] = 0;
+		prefix[0] = 0;
+
+		for (int i = 1; i <= n; i++)
+		{
+			arrival[i] = IAT[i - 1] + arrival[i - 1];
+			prefix[i] = prefix[i - 1] + arrival[i];
+		}
+
+		// the sliding window holds the lines from windowStart up to
+		// i - 1, the front hull holds the ones before windowMiddle
+		int windowStart = 1;
+		int windowMiddle = 1;
+
+		for (int i = 1; i <= n; i++)
+		{
+			if(i > 1)
+			{
+				shortIntercept[i - 1] = Cost[i - 1] - arrival[i - 1] + (alpha * prefix[i - 1]);
+				longIntercept[i - 1] = Cost[i - 1] + T + (alpha * prefix[i - 1]);
+				backSize = append(backHull, backSize, shortIntercept, i - 1);
+			}
+
+			// lines that left the window now pay the full tail time
+			while (windowStart < i && arrival[i] - arrival[windowStart] >= T)
+			{
+				if(windowStart == windowMiddle)
+				{
+					rebuildFront(windowStart, i);
+					windowMiddle = i;
+				}
+
+				undo();
+				longSize = append(longHull, longSize, longIntercept, windowStart);
+				windowStart++;
+			}
+
+			double x = arrival[i];
+
+			// granting all arrivals at once costs no energy, and
+			// its line has slope 0 and intercept 0
+			int best = 0;
+			double bestValue = 0;
+
+			if(longSize > 0)
+			{
+				int p = query(longHull, longSize, longIntercept, x);
+				double value = value(longIntercept, p, x);
+
+				if(value < bestValue){
+					best = p;
+					bestValue = value;
+				}
+			}
+
+			if(frontSize > 0)
+			{
+				int p = query(frontHull, frontSize, shortIntercept, x);
+				double value = value(shortIntercept, p, x) + x;
+
+				if(value < bestValue){
+					best = p;
+					bestValue = value;
+				}
+			}
+
+			if(backSize > 0)
+			{
+				int p = query(backHull, backSize, shortIntercept, x);
+				double value = value(shortIntercept, p, x) + x;
+
+				if(value < bestValue){
+					best = p;
+					bestValue = value;
+				}
+			}
+
+			// recompute the cost of the chosen bundle the same way as Offline
+			double bundleDelay = alpha * ((long)(i - best) * arrival[i] - (prefix[i] - prefix[best]));
+
+			if(best > 0)
+				Cost[i] = Cost[best] + Math.min(arrival[i] - arrival[best], T) + bundleDelay;
+			else
+				Cost[i] = bundleDelay;
+
+			D[i] = D[best] + bundleDelay;
+			previousGrant[i] = best;
+		}
+
+		totalCost = Cost[n] + T;
+		latency = D[n];
+
+		reconstruct(previousGrant, n);
+	}
+
+	/**
+	 * Evaluates line p at x, leaving out the terms that are
+	 * shared by all lines of the same regime.
+	 *
+	 * @param intercept intercepts of the lines
+	 * @param p index of the line
+	 * @param x point of evaluation
+	 * @return value of the line at x
+	 */
+	private double value(double[] intercept, int p, double x)
+	{
+		return intercept[p] - (alpha * p * x);
+	}
+
+	/**
+	 * Checks whether the middle line is not needed on the lower
+	 * envelope of three lines with decreasing slopes.
+	 *
+	 * @param intercept intercepts of the lines
+	 * @param first line with the largest slope
+	 * @param middle line with the middle slope
+	 * @param last line with the smallest slope
+	 * @return true if middle is never strictly below both other lines
+	 */
+	private boolean isRedundant(double[] intercept, int first, int middle, int last)
+	{
+		// slopes are -alpha * p, so slope differences are alpha * (p' - p)
+		double left = (intercept[last] - intercept[first]) * (alpha * (middle - first));
+		double right = (intercept[middle] - intercept[first]) * (alpha * (last - first));
+
+		return left <= right;
+	}
+
+	/**
+	 * Adds a line with a smaller slope than all lines of the hull.
+	 *
+	 * @param hull lines of the hull, largest slope first
+	 * @param size number of lines in the hull
+	 * @param intercept intercepts of the lines
+	 * @param p the new line
+	 * @return the new number of lines in the hull
+	 */
+	private int append(int[] hull, int size, double[] intercept, int p)
+	{
+		while (size >= 2 && isRedundant(intercept, hull[size - 2], hull[size - 1], p))
+			size--;
+
+		hull[size++] = p;
+		return size;
+	}
+
+	/**
+	 * Finds the line of a hull with the lowest value at x. The
+	 * hull may be ordered by decreasing or by increasing slope.
+	 *
+	 * @param hull lines of the hull
+	 * @param size number of lines in the hull
+	 * @param intercept intercepts of the lines
+	 * @param x point of evaluation
+	 * @return the line with the lowest value at x
+	 */
+	private int query(int[] hull, int size, double[] intercept, double x)
+	{
+		int lo = 0, hi = size - 1;
+
+		while (lo < hi)
+		{
+			int mid = (lo + hi) >>> 1;
+
+			if(value(intercept, hull[mid + 1], x) <= value(intercept, hull[mid], x))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+
+		return hull[lo];
+	}
+
+	/**
+	 * Rebuilds the front hull from all lines of the sliding
+	 * window and empties the back hull. The lines are added
+	 * from the back of the window, so the line at the front
+	 * of the window is the last change to be undone first.
+	 *
+	 * @param start first line of the window
+	 * @param end line after the last line of the window
+	 */
+	private void rebuildFront(int start, int end)
+	{
+		frontSize = 0;
+		undoCount = 0;
+		backSize = 0;
+
+		for (int p = end - 1; p >= start; p--)
+			prepend(p);
+	}
+
+	/**
+	 * Adds a line with a larger slope than all lines of the
+	 * front hull. The position of the new line is found by
+	 * binary search so that the change can be undone.
+	 *
+	 * @param p the new line
+	 */
+	private void prepend(int p)
+	{
+		// the front hull is stored with the smallest slope first
+		// and the lines that become redundant are on top
+		int lo = frontSize, hi = frontSize;
+
+		if(frontSize >= 2)
+		{
+			lo = 1;
+			hi = frontSize;
+
+			while (lo < hi)
+			{
+				int mid = (lo + hi) >>> 1;
+
+				if(isRedundant(shortIntercept, p, frontHull[mid], frontHull[mid - 1]))
+					hi = mid;
+				else
+					lo = mid + 1;
+			}
+		}
+
+		int position = lo;
+
+		undoPosition[undoCount] = position;
+		undoLine[undoCount] = frontHull[position];
+		undoSize[undoCount] = frontSize;
+		undoCount++;
+
+		frontHull[position] = p;
+		frontSize = position + 1;
+	}
+
+	/**
+	 * Removes the line that was added last to the front hull.
+	 */
+	private void undo()
+	{
+		undoCount--;
+		frontHull[undoPosition[undoCount]] = undoLine[undoCount];
+		frontSize = undoSize[undoCount];
+	}
+
+	/**
+	 * Rebuilds the optimal schedule by following the previous
+	 * grant indices back from the last arrival. Also sums up
+	 * the unweighted energy and delay of the schedule.
+	 *
+	 * @param previousGrant index of the previous grant for every arrival
+	 * @param lastIndex index of the last arrival
+	 */
+	private void reconstruct(int[] previousGrant, int lastIndex)
+	{
+		grantCount = 0;
+		radioOnTime = T;
+		totalDelay = 0;
+
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
+		{
+			int p = previousGrant[i];
+
+			if(p > 0)
+				radioOnTime += Math.min(arrival[i] - arrival[p], T);
+
+			totalDelay += (long)(i - p) * arrival[i] - (prefix[i] - prefix[p]);
+			grantCount++;
+		}
+
+		grantTimes = new int[grantCount];
+
+		int k = grantCount;
+
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
+			grantTimes[--k] = arrival[i];
+
+		delays = new Histogram();
+		gaps = new Histogram();
+
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
+		{
+			int p = previousGrant[i];
+
+			if(p > 0)
+				gaps.add(arrival[i] - arrival[p]);
+
+			for (int j = p + 1; j <= i; j++)
+				delays.add(arrival[i] - arrival[j]);
+		}
+	}
+
+	/**
+	 * Returns the times at which the optimal solution
+	 * makes its grants, in increasing order.
+	 *
+	 * @return An array containing the grant times of the optimal solution
+	 */
+	public int[] getGrantTimes()
+	{
+		return grantTimes;
+	}
+
+	/**
+	 * Returns the energy cost of the optimal schedule, which
+	 * is the time the radio spends in the on state.
+	 *
+	 * @return The energy cost of the optimal schedule
+	 */
+	public long getRadioOnTime()
+	{
+		return radioOnTime;
+	}
+
+	/**
+	 * Returns the summation of the delays of all requests
+	 * in the optimal schedule, without the alpha weight.
+	 *
+	 * @return The unweighted delay of the optimal schedule
+	 */
+	public long getTotalDelay()
+	{
+		return totalDelay;
+	}
+
+	/**
+	 * Creates a report object representing performance
+	 * metrics of the optimal solution
+	 *
+	 * @return A report object representing optimal solution
+	 */
+	public Report getReport(){
+		return new Report(totalCost - latency, latency, totalCost, 0, grantCount, delays, gaps);
+	}
+}
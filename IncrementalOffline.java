@@ -0,0 +1,331 @@
+/**
+ * Class IncrementalOffline
+ *
+ * Computes the optimal offline solution of a trace that grows
+ * one arrival at a time. Every appended arrival extends the
+ * dynamic program of Offline by one step, after which the
+ * optimal cost, latency and grant count of the trace so far
+ * are available. They are identical to those of an Offline
+ * run over the same prefix of the trace.
+ *
+ * Only the arrivals a future bundle can still start at are
+ * kept. A bundle starting at an arrival is dominated once
+ * splitting it after that arrival saves more than it costs,
+ * with a gap of at least T. From then on the bundle stays
+ * dominated whatever arrivals follow, so the arrival is
+ * dropped. A provable split point, as in Offline, drops all
+ * arrivals before it. The arrivals that are kept are held in
+ * rings of power-of-two size, which grow as needed.
+ *
+ * The grant times of the optimal solution are not kept,
+ * since they may change with every arrival.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class IncrementalOffline {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// parameters of the bundling problem
+	private double alpha;
+	private int T;
+
+	// state of the kept arrivals, indexed by arrival number & mask
+	private long[] arrival;
+	private long[] prefix;
+	private double[] Cost;
+	private double[] D;
+	private long[] G;
+	private int mask;
+
+	// number of arrivals so far
+	private long n;
+
+	// first arrival of the current segment
+	private long first;
+
+	// oldest arrival a bundle can still start at
+	private long oldest;
+
+	//largest number of bundles examined for a single arrival
+	private int maxWindow = 1;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T tail time of the radio
+	 * @param alpha Weight associated with delay
+	 */
+	public IncrementalOffline(int T, double alpha)
+	{
+		this.T = T;
+		this.alpha = alpha;
+
+		arrival = new long[INITIAL_CAPACITY];
+		prefix = new long[INITIAL_CAPACITY];
+		Cost = new double[INITIAL_CAPACITY];
+		D = new double[INITIAL_CAPACITY];
+		G = new long[INITIAL_CAPACITY];
+		mask = INITIAL_CAPACITY - 1;
+	}
+
+	/**
+	 * Appends an arrival to the trace and extends the
+	 * optimal solution to it.
+	 *
+	 * @param iat Time since the previous arrival
+	 */
+	public void append(long iat)
+	{
+		// the sentinel at index 0 and every kept arrival must fit
+		if(n + 2 - Math.max(oldest - 1, 0) > arrival.length)
+			grow();
+
+		long i = ++n;
+		int k = (int)(i & mask);
+		int p = (int)((i - 1) & mask);
+
+		arrival[k] = arrival[p] + iat;
+		prefix[k] = prefix[p] + arrival[k];
+
+		if(i == 1)
+		{
+			first = 1;
+			oldest = 1;
+
+			Cost[k] = 0;
+			D[k] = 0;
+			G[k] = 1;
+			return;
+		}
+
+		// costs stay absolute across segments, so that they are
+		// summed in the same order as by Offline
+		if(isSplitPoint(i - 1))
+		{
+			first = i;
+			oldest = i;
+		}
+
+		extend(i);
+
+		// bundles starting at these arrivals are dominated for good
+		while(oldest < i && arrival(i) - arrival(oldest) >= T && splitSaves(oldest, oldest, i))
+			oldest++;
+	}
+
+	/**
+	 * One step of the dynamic program of Offline, for
+	 * arrival i of the current segment. The first bundle
+	 * of a segment after a split point follows the last
+	 * grant of the segment before.
+	 */
+	private void extend(long i)
+	{
+		double C = 0.0;
+		double D_temp = 0.0;
+
+		int k = (int)(i & mask);
+		long length = i - first + 1;
+		long j;
+
+		Cost[k] = Double.MAX_VALUE;
+
+		for (j = 1; j <= length; j++)
+		{
+			if(isDominated(i - j + 1, i))
+				break;
+
+			int q = (int)((i - j) & mask);
+
+			D_temp = bundleDelay(i - j + 1, i);
+
+			long grants = 1;
+
+			if(j < i){
+				C = Cost[q] + Math.min(arrival[k] - arrival[q], T) + D_temp;
+				D_temp += D[q];
+				grants += G[q];
+			}
+			else{
+				C = D_temp;
+			}
+
+			if(C < Cost[k] || (j == i && C <= Cost[k])){
+				Cost[k] = C;
+				D[k] = D_temp;
+				G[k] = grants;
+			}
+		}
+
+		maxWindow = (int)Math.max(maxWindow, j - 1);
+	}
+
+	private long arrival(long index)
+	{
+		return arrival[(int)(index & mask)];
+	}
+
+	private boolean isSplitPoint(long s)
+	{
+		return arrival(s + 1) - arrival(s) >= T && splitSaves(s, s, s + 1);
+	}
+
+	/**
+	 * Same as Offline.isDominated().
+	 */
+	private boolean isDominated(long startIndex, long endIndex)
+	{
+		if(startIndex >= endIndex)
+			return false;
+
+		return splitSaves(startIndex, startIndex, endIndex)
+				|| splitSaves(startIndex, (startIndex + endIndex) / 2, endIndex)
+				|| splitSaves(startIndex, endIndex - 1, endIndex);
+	}
+
+	/**
+	 * Same as Offline.splitSaves().
+	 */
+	private boolean splitSaves(long startIndex, long splitIndex, long endIndex)
+	{
+		long gap = arrival(endIndex) - arrival(splitIndex);
+
+		return alpha * (splitIndex - startIndex + 1) * gap > Math.min(gap, T);
+	}
+
+	/**
+	 * Same as Offline.bundle_delay().
+	 */
+	private double bundleDelay(long startIndex, long endIndex)
+	{
+		long delay = (endIndex - startIndex + 1) * arrival(endIndex)
+				- (prefix[(int)(endIndex & mask)] - prefix[(int)((startIndex - 1) & mask)]);
+
+		return alpha * delay;
+	}
+
+	/**
+	 * Doubles the size of the rings, keeping every
+	 * arrival from the one before the oldest kept arrival.
+	 */
+	private void grow()
+	{
+		int capacity = arrival.length * 2;
+		int newMask = capacity - 1;
+
+		long[] newArrival = new long[capacity];
+		long[] newPrefix = new long[capacity];
+		double[] newCost = new double[capacity];
+		double[] newD = new double[capacity];
+		long[] newG = new long[capacity];
+
+		for (long i = Math.max(oldest - 1, 0); i <= n; i++)
+		{
+			int from = (int)(i & mask);
+			int to = (int)(i & newMask);
+
+			newArrival[to] = arrival[from];
+			newPrefix[to] = prefix[from];
+			newCost[to] = Cost[from];
+			newD[to] = D[from];
+			newG[to] = G[from];
+		}
+
+		arrival = newArrival;
+		prefix = newPrefix;
+		Cost = newCost;
+		D = newD;
+		G = newG;
+		mask = newMask;
+	}
+
+	/**
+	 * Returns the number of arrivals
+	 *
+	 * @return The number of arrivals appended so far
+	 */
+	public long getArrivalCount()
+	{
+		return n;
+	}
+
+	/**
+	 * Returns the optimal total cost of the trace so far,
+	 * including the tail after the last grant.
+	 *
+	 * @return The optimal cost, 0 before the first arrival
+	 */
+	public double getTotalCost()
+	{
+		if(n == 0)
+			return 0;
+
+		return Cost[(int)(n & mask)] + T;
+	}
+
+	/**
+	 * Returns the weighted delay of the optimal solution
+	 * of the trace so far.
+	 *
+	 * @return The optimal latency cost
+	 */
+	public double getLatency()
+	{
+		if(n == 0)
+			return 0;
+
+		return D[(int)(n & mask)];
+	}
+
+	/**
+	 * Returns the number of grants of the optimal solution
+	 * of the trace so far.
+	 *
+	 * @return The optimal grant count
+	 */
+	public long getGrantCount()
+	{
+		if(n == 0)
+			return 0;
+
+		return G[(int)(n & mask)];
+	}
+
+	/**
+	 * Returns the number of arrivals a bundle can still
+	 * start at, which bounds the work of the next append.
+	 *
+	 * @return The number of kept arrivals
+	 */
+	public long getWindow()
+	{
+		return n - oldest + 1;
+	}
+
+	/**
+	 * Returns the largest number of bundles that were
+	 * examined for a single arrival so far.
+	 *
+	 * @return The largest window length reached
+	 */
+	public int getMaxWindow()
+	{
+		return maxWindow;
+	}
+
+	/**
+	 * Creates a report object representing performance
+	 * metrics of the optimal solution of the trace so far
+	 *
+	 * @return A report object representing optimal solution
+	 */
+	public Report getReport()
+	{
+		double totalCost = getTotalCost();
+		double latency = getLatency();
+
+		return new Report(totalCost - latency, latency, totalCost, 0, getGrantCount());
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ * Class IntRing
+ * 
+ * A growable first-in first-out buffer of primitive int
+ * values, kept in a ring of power-of-two size. Once it has
+ * grown large enough, adding and removing values does not
+ * allocate.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class IntRing {
+
+	private static final int INITIAL_CAPACITY = 16;
+	
+	private int[] values;
+	private int head;
+	private int size;
+	
+	/**
+	 * Default constructor
+	 */
+	public IntRing() {
+		values = new int[INITIAL_CAPACITY];
+	}
+	
+	/**
+	 * Adds a value at the end of the buffer.
+	 * 
+	 * @param value The value to add
+	 */
+	public void add( int value ) {
+		if(size == values.length)
+			grow();
+		
+		values[(head + size) & (values.length - 1)] = value;
+		size++;
+	}
+	
+	/**
+	 * Removes the value at the front of the buffer.
+	 * 
+	 * @return The oldest value in the buffer
+	 * @throws java.util.NoSuchElementException If the buffer is empty
+	 */
+	public int remove() {
+		if(size == 0)
+			throw new java.util.NoSuchElementException();
+		
+		int value = values[head];
+		head = (head + 1) & (values.length - 1);
+		size--;
+		
+		return value;
+	}
+	
+	/**
+	 * Returns a value without removing it.
+	 * 
+	 * @param index Position of the value, 0 is the oldest value
+	 * @return The value at the given position
+	 */
+	public int get( int index ) {
+		if(index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		
+		return values[(head + index) & (values.length - 1)];
+	}
+	
+	/**
+	 * Returns the number of values in the buffer
+	 * 
+	 * @return The number of values
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Removes all values.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Doubles the capacity, moving the values to the
+	 * start of the new array.
+	 */
+	private void grow() {
+		int[] grown = new int[2 * values.length];
+		
+		for(int i = 0; i < size; i++)
+			grown[i] = values[(head + i) & (values.length - 1)];
+		
+		values = grown;
+		head = 0;
+	}
+}
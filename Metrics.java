@@ -0,0 +1,288 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Class Metrics
+ *
+ * Counters of a single run of a simulation engine: events
+ * handled per type, the largest size of the event list,
+ * candidate bundles examined by the dynamic program, run
+ * time and bytes allocated by the thread that ran it. At the
+ * end of the run they are committed as a JFR event, and the
+ * engine keeps them for getMetrics().
+ *
+ * Metrics are collected only if the JVM is started with
+ * -Dbundling.metrics=true. Every counter update in the engines
+ * is guarded by ENABLED, which the JIT compiler treats as a
+ * constant, so with metrics off the updates are removed from
+ * the compiled code and no Metrics objects are created.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class Metrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("bundling.metrics");
+
+	private static final int EVENT_TYPES = 3;
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+	private String engine;
+	private long arrivals;
+
+	private long[] events = new long[EVENT_TYPES];
+	private int maxQueueSize;
+	private AtomicLong innerIterations = new AtomicLong();
+
+	private long startNanos;
+	private long elapsedNanos;
+	private long startAllocated;
+	private long allocatedBytes = -1;
+
+	private RunEvent event = new RunEvent();
+
+	/**
+	 * Constructor
+	 *
+	 * @param engine Name of the engine
+	 * @param arrivals Number of arrivals of the trace
+	 */
+	Metrics(String engine, long arrivals) {
+		this.engine = engine;
+		this.arrivals = arrivals;
+	}
+
+	/**
+	 * Marks the start of the run.
+	 */
+	void begin() {
+		event.begin();
+		startAllocated = allocatedBytes();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Counts an event handled by the simulator.
+	 *
+	 * @param type Type of the event, as in EventHeap
+	 * @param queueSize Number of events in the event list before the event was taken
+	 */
+	void event(int type, int queueSize) {
+		events[type]++;
+
+		if(queueSize > maxQueueSize)
+			maxQueueSize = queueSize;
+	}
+
+	/**
+	 * Adds candidate bundles examined by the dynamic program.
+	 * May be called from several threads.
+	 *
+	 * @param iterations Number of bundles
+	 */
+	void addInnerIterations(long iterations) {
+		innerIterations.addAndGet(iterations);
+	}
+
+	/**
+	 * Marks the end of the run and commits the JFR event.
+	 */
+	void end() {
+		elapsedNanos = System.nanoTime() - startNanos;
+
+		long allocated = allocatedBytes();
+
+		if(allocated >= 0 && startAllocated >= 0)
+			allocatedBytes = allocated - startAllocated;
+
+		event.end();
+
+		if(event.shouldCommit()){
+			event.engine = engine;
+			event.arrivals = arrivals;
+			event.grantEvents = events[EventHeap.GRANT];
+			event.arrivalEvents = events[EventHeap.ARRIVAL];
+			event.endEvents = events[EventHeap.END];
+			event.maxQueueSize = maxQueueSize;
+			event.innerIterations = innerIterations.get();
+			event.eventsPerSecond = getEventsPerSecond();
+			event.allocatedBytes = allocatedBytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the current
+	 * thread, or -1 if the JVM does not count them.
+	 */
+	private static long allocatedBytes() {
+		if(THREADS instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean)THREADS).getCurrentThreadAllocatedBytes();
+
+		return -1;
+	}
+
+	/**
+	 * Getter for the engine
+	 *
+	 * @return The name of the engine of the run
+	 */
+	public String getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Returns the number of events of a type
+	 *
+	 * @param type Type of the event, EventHeap.GRANT, ARRIVAL or END
+	 * @return The number of events of the type handled in the run
+	 */
+	public long getEventCount(int type) {
+		return events[type];
+	}
+
+	/**
+	 * Returns the number of events
+	 *
+	 * @return The number of events of all types handled in the run
+	 */
+	public long getEventCount() {
+		long count = 0;
+
+		for(int type = 0; type < EVENT_TYPES; type++)
+			count += events[type];
+
+		return count;
+	}
+
+	/**
+	 * Returns the high-water mark of the event list
+	 *
+	 * @return The largest number of events waiting in the event list, 0 without one
+	 */
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * Returns the number of iterations of the inner loop of
+	 * the dynamic program
+	 *
+	 * @return The number of candidate bundles examined in the run
+	 */
+	public long getInnerIterations() {
+		return innerIterations.get();
+	}
+
+	/**
+	 * Returns the run time
+	 *
+	 * @return The wall-clock time of the run in nanoseconds
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the event rate
+	 *
+	 * @return The number of events handled per second of the run
+	 */
+	public double getEventsPerSecond() {
+		return (elapsedNanos > 0) ? getEventCount() * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * Returns the bytes allocated by the run. Work done on
+	 * other threads, such as the segments of a parallel
+	 * Offline run, is not included.
+	 *
+	 * @return The bytes allocated by the thread that ran the run, or -1 if unknown
+	 */
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	/**
+	 * Returns a one-line string representation of the metrics
+	 */
+	public String toString() {
+		return engine + "\tArrivals: " + arrivals
+				+ "\tEvents: " + events[EventHeap.ARRIVAL] + "/" + events[EventHeap.GRANT] + "/" + events[EventHeap.END]
+				+ "\tMax queue: " + maxQueueSize
+				+ "\tInner iterations: " + innerIterations.get()
+				+ "\tEvents/s: " + (long)getEventsPerSecond()
+				+ "\tAllocated: " + allocatedBytes
+				+ "\tTime (ms): " + elapsedNanos / 1000000.0;
+	}
+
+	/**
+	 * JFR event committed at the end of every run.
+	 */
+	@Name("bundling.Run")
+	@Label("Simulation Run")
+	@Category("Bundling")
+	@Description("A run of a simulation engine over a trace")
+	static class RunEvent extends Event {
+
+		@Label("Engine")
+		String engine;
+
+		@Label("Arrivals")
+		long arrivals;
+
+		@Label("Grant Events")
+		long grantEvents;
+
+		@Label("Arrival Events")
+		long arrivalEvents;
+
+		@Label("End Events")
+		long endEvents;
+
+		@Label("Event Queue High-Water Mark")
+		int maxQueueSize;
+
+		@Label("Inner Loop Iterations")
+		long innerIterations;
+
+		@Label("Events per Second")
+		double eventsPerSecond;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocatedBytes;
+	}
+
+	/**
+	 * JFR event committed for every segment solved by the
+	 * dynamic program of Offline, on the thread that solved it.
+	 */
+	@Name("bundling.Segment")
+	@Label("Offline Segment")
+	@Category("Bundling")
+	@Description("A segment of the trace solved by the dynamic program")
+	static class SegmentEvent extends Event {
+
+		@Label("First Arrival")
+		int firstIndex;
+
+		@Label("Arrivals")
+		int arrivals;
+
+		@Label("Inner Loop Iterations")
+		long innerIterations;
+
+		@Label("Largest Window")
+		int window;
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * Class MultiAlphaSimulator
+ *
+ * Simulates the break-even bundling algorithm for many
+ * alpha values in a single pass over the inter-arrival
+ * times. Every alpha value has its own lane of simulation
+ * state, a Simulator.Lane. For every arrival all lanes are
+ * advanced one after another with Simulator.arrive().
+ *
+ * Under break-even a bundle is always granted before the
+ * next arrival, so every lane only needs to look at one
+ * arrival at a time and no event list is needed. The
+ * reports are identical to the ones of Simulator, the
+ * delays of a granted bundle are found by walking back
+ * over its inter-arrival times.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class MultiAlphaSimulator {
+
+	private int T;
+	private int[] IAT;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	public MultiAlphaSimulator(int T, int[] IAT){
+		this.T = T;
+		this.IAT = IAT;
+	}
+
+	/**
+	 * Simulates the break-even algorithm for all the given
+	 * alpha values at once.
+	 *
+	 * @param alpha Weights given to delay, one per lane
+	 * @return One report per alpha value, in the same order
+	 */
+	public Report[] run(double[] alpha) {
+		int lanes = alpha.length;
+
+		// state of every lane
+		Simulator.Lane[] lane = new Simulator.Lane[lanes];
+
+		// distributions of request delays and inter-grant times of every lane
+		Histogram[] delays = new Histogram[lanes];
+		Histogram[] gaps = new Histogram[lanes];
+
+		for (int k = 0; k < lanes; k++)
+		{
+			lane[k] = new Simulator.Lane();
+			delays[k] = new Histogram();
+			gaps[k] = new Histogram();
+		}
+
+		// arrivals and the default cost are the same for all lanes
+		int clock = 0;
+		int lastArrival = 0;
+		double defaultCost = 0;
+
+		for (int index = 0; index < IAT.length; index++)
+		{
+			int gap = IAT[index];
+			clock = lastArrival + gap;
+
+			if(lastArrival > 0)
+				defaultCost += Math.min(clock - lastArrival, T);
+
+			lastArrival = clock;
+
+			double nextIAT = (index + 1 == IAT.length) ? Double.MAX_VALUE : IAT[index + 1];
+
+			for (int k = 0; k < lanes; k++)
+			{
+				long grantTime = Simulator.arrive(lane[k], alpha[k], T, gap, nextIAT, gaps[k]);
+
+				if(grantTime < 0)
+					continue;
+
+				long arrival = clock;
+
+				for (int b = 0; b < lane[k].granted; b++)
+				{
+					delays[k].add(grantTime - arrival);
+					arrival -= IAT[index - b];
+				}
+			}
+		}
+
+		defaultCost += T;
+
+		Report[] reports = new Report[lanes];
+
+		for (int k = 0; k < lanes; k++)
+		{
+			if(lane[k].bufferCount > 0)
+				throw new IllegalStateException("The last bundle was never granted for alpha = " + alpha[k]);
+
+			double energy = lane[k].energy + T; // Add the tail energy after last grant
+
+			reports[k] = new Report(energy, lane[k].latency, energy + lane[k].latency, defaultCost, lane[k].grantCount,
+					delays[k], gaps[k]);
+		}
+
+		return reports;
+	}
+}
@@ -0,0 +1,26 @@
+/**
+ * Class NullSink
+ * 
+ * A simulation sink that discards everything. Simulators
+ * recognize it and do not log at all.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class NullSink implements SimulationSink {
+
+	public void arrivals(int[] IAT) {
+	}
+	
+	public void beginRun(double alpha) {
+	}
+	
+	public void delay(long delay) {
+	}
+	
+	public void grant(long interGrant) {
+	}
+	
+	public void close() {
+	}
+}
@@ -1,4 +1,5 @@
-import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Class Offline
@@ -6,7 +7,19 @@ import java.util.ArrayList;
  * This class is responsible for calculating the optimal  
  * offline solution. It is a dynamic programming-based 
  * solution with the runtime of O(n^2) where n is the  
- * number of arrivals.
+ * number of arrivals. Bundle delays are looked up in O(1)
+ * from prefix sums of the arrival times. The original
+ * O(n^3) formulation is kept as a reference mode.
+ * 
+ * Unless disabled, bundles that provably cannot be part
+ * of an optimal schedule are pruned, so only a window of
+ * recent arrivals is examined for every arrival.
+ * 
+ * Long gaps, over which no optimal schedule keeps a bundle
+ * open, cut the problem into independent segments, which
+ * can be solved in parallel on a pool. The results are the
+ * same, bit for bit, as those of solving the whole trace
+ * in order.
  * 
  * @author Ali Sehati
  * @version 1.0
@@ -14,6 +27,9 @@ import java.util.ArrayList;
  */
 public class Offline {
 	
+	// number of arrivals below which a task stops splitting its segments
+	private static final int MIN_TASK_ARRIVALS = 1 << 12;
+	
 	// parameters of the bundling problem
 	private double alpha;
 	private int T;
@@ -24,10 +40,35 @@ public class Offline {
 	//array representing actual arrival times
 	private int[] arrival;
 	
+	//prefix sums of the arrival times
+	private long[] prefix;
+	
+	//if set, bundle delays are computed with the original loop
+	private boolean referenceMode;
+	
+	//if set, dominated bundles are skipped
+	private boolean pruning = true;
+	
+	//pool the segments are solved on, null to solve them in order
+	private ForkJoinPool pool;
+	
+	//largest number of bundles examined for a single arrival
+	private int maxWindow;
+	
 	//performance metrics characterizing the optimal result
 	private double latency;
 	private double totalCost;
 	private int grantCount;
+	
+	//times at which the optimal solution makes its grants
+	private int[] grantTimes;
+
+	// distributions of request delays and inter-grant times of the solution
+	private Histogram delays = new Histogram();
+	private Histogram gaps = new Histogram();
+	
+	//counters of the last run, null unless metrics are enabled
+	private Metrics metrics;
 
 	/**
 	 * Constructor
@@ -36,10 +77,27 @@ public class Offline {
 	 * @param IAT Array representing inter-arrival times
 	 */
 	public Offline(int T, int[] IAT)
+	{
+		this(T, IAT, null);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * Solves the independent segments of the problem in 
+	 * parallel on the given pool.
+	 * 
+	 * @param T tail time of the radio
+	 * @param IAT Array representing inter-arrival times
+	 * @param pool Pool the segments are solved on, null to solve them in order
+	 */
+	public Offline(int T, int[] IAT, ForkJoinPool pool)
 	{
 		this.T = T;
 		this.IAT = IAT;
+		this.pool = pool;
 		arrival = new int[IAT.length + 1];
+		prefix = new long[IAT.length + 1];
 	}
 	
 	/**
@@ -50,6 +108,7 @@ public class Offline {
 		totalCost = 0;
 		latency = 0;
 		grantCount = 0;
+		grantTimes = new int[0];
 	}
 	
 	/**
@@ -62,22 +121,62 @@ public class Offline {
 		this.alpha = alpha;
 	}
 	
+	/**
+	 * Selects how bundle delays are computed. In reference
+	 * mode every delay is summed over the bundle, which is
+	 * the original O(n^3) solution. Otherwise the delays 
+	 * are taken from prefix sums in constant time. Both 
+	 * modes give identical results. Pruning is not applied
+	 * in reference mode.
+	 * 
+	 * @param referenceMode true to use the original O(n^3) solution
+	 */
+	public void setReferenceMode(boolean referenceMode)
+	{
+		this.referenceMode = referenceMode;
+	}
+	
+	/**
+	 * Enables or disables pruning of dominated bundles.
+	 * Pruning is exact, it never changes the optimal cost
+	 * or the optimal schedule. It is enabled by default.
+	 * 
+	 * @param pruning true to skip bundles that cannot be optimal
+	 */
+	public void setPruning(boolean pruning)
+	{
+		this.pruning = pruning;
+	}
+	
 	/**
 	 * Main body of the dynamic-programming solution.
 	 * Computes the values of optimal latency, total cost
-	 * and grant count.
+	 * and grant count. For every arrival only the index of
+	 * the previous grant in its optimal schedule is kept,
+	 * and the optimal schedule is rebuilt once at the end.
+	 * 
+	 * If a pool was given and pruning is enabled, the trace
+	 * is first cut at provable split points, gaps that no
+	 * bundle of an optimal schedule can span. The segments
+	 * are solved in parallel with costs relative to their
+	 * start, and then replayed in order with the absolute
+	 * costs, so that every cost is summed exactly as if the
+	 * whole trace was solved at once.
 	 */
 	public void run()
 	{
-		double C = 0.0;
-		double D_temp = 0.0;				
-
+		if(Metrics.ENABLED){
+			metrics = new Metrics("Offline", IAT.length);
+			metrics.begin();
+		}
+		
 		double[] Cost = new double[arrival.length];
 		double[] D = new double[arrival.length];
-		ArrayList<Boolean>[] Seq = new ArrayList[arrival.length];
 		
-		for (int i = 0; i < Seq.length; i++)
-			Seq[i] = new ArrayList<Boolean>();
+		// index of the arrival granted right before arrival i
+		// in the optimal schedule of the first i arrivals,
+		// 0 if there is no such grant
+		int[] previousGrant = new int[arrival.length];
 				
 		arrival[0] = 0; 
 		arrival[1] = IAT[0];
@@ -87,57 +186,432 @@ public class Offline {
 			arrival[i] = IAT[i - 1] + arrival[i - 1];
 		}
 		
-		Cost[0] = 0; Cost[1] = 0;		
-		D[0] = 0; D[1] = 0;
-		Seq[1].add(true);
+		prefix[0] = 0;
+		
+		for (int i = 1; i < arrival.length; i++)
+		{
+			prefix[i] = prefix[i - 1] + arrival[i];
+		}
+		
+		int n = arrival.length - 1;
+		int[] first = (pool != null && pruning && !referenceMode) ? splitPoints() : new int[]{1, n + 1};
+		int segments = first.length - 1;
+		int[] windows = new int[segments];
 		
+		if(segments == 1)
+		{
+			windows[0] = solve(1, n, Cost, D, previousGrant, null);
+		}
+		else
+		{
+			double[] second = new double[arrival.length];
+			
+			pool.invoke(new SegmentTask(first, windows, Cost, D, previousGrant, second, 0, segments));
+			
+			for (int s = 1; s < segments; s++)
+				replay(first[s], first[s + 1] - 1, Cost, D, previousGrant, second);
+		}
 		
-		for (int i = 2; i < arrival.length; i++)
+		// the schedule ends with a grant followed by a full tail
+		totalCost = Cost[n] + T;
+		latency = D[n];
+		maxWindow = 1;
+		
+		for (int s = 0; s < segments; s++)
+			maxWindow = Math.max(maxWindow, windows[s]);
+		
+		reconstruct(previousGrant, arrival.length - 1);
+		
+		if(Metrics.ENABLED)
+			metrics.end();
+	}
+	
+	/**
+	 * Finds the provable split points of the trace, gaps of
+	 * at least T for which splitSaves(s, s, s + 1) holds.
+	 * Splitting a bundle that spans the gap between arrivals
+	 * s and s + 1 right before the gap saves at least alpha
+	 * times the gap in delay and costs at most T in energy,
+	 * so no optimal schedule keeps a bundle open over such a
+	 * gap. Since the gap is at least T, the first
+	 * grant after it costs T in energy whatever the schedule
+	 * before it, and the segments on both sides are
+	 * independent.
+	 * 
+	 * @return The index of the first arrival of every segment,
+	 *         followed by the index after the last arrival
+	 */
+	private int[] splitPoints()
+	{
+		int n = arrival.length - 1;
+		int count = 1;
+		
+		for (int s = 1; s < n; s++)
+			if(isSplitPoint(s))
+				count++;
+		
+		int[] first = new int[count + 1];
+		int k = 0;
+		
+		first[k++] = 1;
+		
+		for (int s = 1; s < n; s++)
+			if(isSplitPoint(s))
+				first[k++] = s + 1;
+		
+		first[k] = n + 1;
+		
+		return first;
+	}
+	
+	private boolean isSplitPoint(int s)
+	{
+		return arrival[s + 1] - arrival[s] >= T && splitSaves(s, s, s + 1);
+	}
+	
+	/**
+	 * Runs the dynamic program over the arrivals from 
+	 * firstIndex up to lastIndex, as if they were the whole
+	 * trace. Costs are relative to the start of the segment,
+	 * and the previous grant of the first bundle is the last
+	 * arrival of the segment before, or 0. For the first
+	 * segment the costs are also the absolute ones.
+	 * 
+	 * @param firstIndex position of the first arrival of the segment
+	 * @param lastIndex position of the last arrival of the segment
+	 * @param Cost optimal cost of every arrival, without the final tail
+	 * @param D optimal weighted delay of every arrival
+	 * @param previousGrant index of the previous grant for every arrival
+	 * @param second cost of the second best bundle for every arrival, or null
+	 * @return The largest window length reached in the segment
+	 */
+	private int solve(int firstIndex, int lastIndex, double[] Cost, double[] D, int[] previousGrant,
+			double[] second)
+	{
+		int window = 1;
+		long iterations = 0;
+		
+		Metrics.SegmentEvent event = null;
+		
+		if(Metrics.ENABLED){
+			event = new Metrics.SegmentEvent();
+			event.begin();
+		}
+		
+		Cost[firstIndex] = 0;
+		D[firstIndex] = 0;
+		previousGrant[firstIndex] = firstIndex - 1;
+		
+		for (int i = firstIndex + 1; i <= lastIndex; i++)
 		{
-			Cost[i] = accumulated_delay(1,i);
-			D[i] = Cost[i];
+			int examined = evaluate(i, firstIndex, true, Cost, D, previousGrant, second);
 			
-			for (int k = 1; k < i; k++)
-				Seq[i].add(false);
+			window = Math.max(window, examined);
 			
-			Seq[i].add(true);
+			if(Metrics.ENABLED)
+				iterations += examined;
+		}
+		
+		if(Metrics.ENABLED){
+			metrics.addInnerIterations(iterations);
+			event.end();
+			
+			if(event.shouldCommit()){
+				event.firstIndex = firstIndex;
+				event.arrivals = lastIndex - firstIndex + 1;
+				event.innerIterations = iterations;
+				event.window = window;
+				event.commit();
+			}
+		}
+		
+		return window;
+	}
+	
+	/**
+	 * Finds the optimal last bundle of arrival i, which 
+	 * starts no earlier than the first arrival of its 
+	 * segment, and sets the cost, delay and previous grant
+	 * of the arrival.
+	 * 
+	 * @param i position of the arrival
+	 * @param firstIndex position of the first arrival of the segment
+	 * @param relative true if the costs of the segment are relative to its start
+	 * @param Cost optimal cost of every arrival, without the final tail
+	 * @param D optimal weighted delay of every arrival
+	 * @param previousGrant index of the previous grant for every arrival
+	 * @param second cost of the second best bundle for every arrival, or null
+	 * @return The number of bundles examined
+	 */
+	private int evaluate(int i, int firstIndex, boolean relative, double[] Cost, double[] D,
+			int[] previousGrant, double[] second)
+	{
+		double C = 0.0;
+		double D_temp = 0.0;
+		
+		Cost[i] = Double.MAX_VALUE;
+		
+		if(second != null)
+			second[i] = Double.MAX_VALUE;
+		
+		boolean prune = pruning && !referenceMode;
+		
+		// The last bundle holds the j most recent arrivals.
+		// For j == length all arrivals of the segment are 
+		// granted at once, which in relative costs takes no
+		// energy beyond the tail T that every schedule pays 
+		// after the gap. For j == i all arrivals are granted 
+		// at once, which wins ties as in the original 
+		// formulation where it was the first candidate.
+		int length = i - firstIndex + 1;
+		int whole = relative ? length : i;
+		int j;
+		
+		for (j = 1; j <= length; j++)
+		{
+			if(prune && isDominated(i - j + 1, i))
+				break;
+			
+			D_temp = delay(i - j + 1, i);
 			
-			for (int j = 1; j < i; j++)
+			if(j < whole){
+				C = Cost[i - j] + Math.min(arrival[i] - arrival[i - j], T) + D_temp;
+				D_temp += D[i - j];
+			}
+			else{
+				C = D_temp;
+			}
+			
+			if(C < Cost[i] || (j == i && C <= Cost[i])){
+				if(second != null)
+					second[i] = Cost[i];
+				
+				Cost[i] = C;
+				D[i] = D_temp;
+				previousGrant[i] = i - j;
+			}
+			else if(second != null && C < second[i]){
+				second[i] = C;
+			}
+		}
+		
+		return j - 1;
+	}
+	
+	/**
+	 * Turns the relative costs of a segment that was solved
+	 * on its own into the absolute costs of the whole trace,
+	 * once the segments before it are done. The cost of the
+	 * chosen bundle of every arrival is summed again from 
+	 * the absolute cost of its previous grant. The sums can
+	 * round differently than the relative ones, so where the
+	 * second best bundle was within the rounding error, all
+	 * bundles are compared again, and if another one wins 
+	 * the rest of the segment is solved again.
+	 * 
+	 * All terms are positive and a cost is summed over at
+	 * most length + 1 bundles with two additions each, so 
+	 * the relative and the absolute sums are both within
+	 * 2 * (length + 1) rounding errors of the exact sum, 
+	 * and two bundles can only change order if they are 
+	 * within 8 * (length + 1) rounding errors. Twice that 
+	 * is used as the bound.
+	 * 
+	 * @param firstIndex position of the first arrival of the segment
+	 * @param lastIndex position of the last arrival of the segment
+	 * @param Cost optimal cost of every arrival, without the final tail
+	 * @param D optimal weighted delay of every arrival
+	 * @param previousGrant index of the previous grant for every arrival
+	 * @param second cost of the second best bundle for every arrival
+	 */
+	private void replay(int firstIndex, int lastIndex, double[] Cost, double[] D, int[] previousGrant,
+			double[] second)
+	{
+		double base = 0;
+		long iterations = 0;
+		
+		for (int i = firstIndex; i <= lastIndex; i++)
+		{
+			double bound = 16 * (i - firstIndex + 2) * Math.ulp(base + second[i]);
+			
+			if(i == firstIndex || second[i] == Double.MAX_VALUE || second[i] - Cost[i] > bound)
 			{
-				C = Cost[i - j] + Math.min(arrival[i] - arrival[i - j], T);
-				D_temp = accumulated_delay(i - j + 1, i);
+				int p = previousGrant[i];
+				double D_temp = delay(p + 1, i);
 				
-				C += D_temp;
-				D_temp += D[i - j];
+				Cost[i] = Cost[p] + Math.min(arrival[i] - arrival[p], T) + D_temp;
+				D[i] = D_temp + D[p];
+				
+				if(i == firstIndex)
+					base = Cost[i];
 				
-				if(C < Cost[i]){
-					Cost[i] = C;
-					D[i] = D_temp;
-					
-					Seq[i].clear();
-					Seq[i].addAll(Seq[i - j]);
-					
-					for (int k = 1; k < j; k++)
-						Seq[i].add(false);
-					
-					Seq[i].add(true);
-				}					
+				continue;
+			}
+			
+			int chosen = previousGrant[i];
+			
+			iterations += evaluate(i, firstIndex, false, Cost, D, previousGrant, null);
+			
+			if(previousGrant[i] != chosen)
+			{
+				for (int k = i + 1; k <= lastIndex; k++)
+					iterations += evaluate(k, firstIndex, false, Cost, D, previousGrant, null);
+				
+				break;
 			}
 		}
 		
-		int lastIndex =  arrival.length - 1;
+		if(Metrics.ENABLED)
+			metrics.addInnerIterations(iterations);
+	}
+	
+	/**
+	 * Checks whether the bundle of arrivals from startIndex 
+	 * up to endIndex is dominated. Splitting the bundle into 
+	 * two bundles at splitIndex adds at most 
+	 * min(arrival[endIndex] - arrival[splitIndex], T) to the
+	 * energy cost, while it saves the delay of the first
+	 * part during that interval. If the saving is larger,
+	 * the bundle and every longer bundle ending at endIndex 
+	 * are more costly than the split schedule and cannot be
+	 * optimal. Note that a large weighted delay alone is not 
+	 * enough for this. A few split positions are tried so
+	 * that the check takes constant time.
+	 * 
+	 * @param startIndex start position of a bundle in the arrival array
+	 * @param endIndex end position of a bundle in the arrival array
+	 * @return true if the bundle cannot be part of an optimal schedule
+	 */
+	private boolean isDominated(int startIndex, int endIndex)
+	{
+		if(startIndex >= endIndex)
+			return false;
 		
-		totalCost = Cost[lastIndex] + T;
-		latency = D[lastIndex];
+		return splitSaves(startIndex, startIndex, endIndex)
+				|| splitSaves(startIndex, (startIndex + endIndex) / 2, endIndex)
+				|| splitSaves(startIndex, endIndex - 1, endIndex);
+	}
+	
+	/**
+	 * Checks whether splitting a bundle after splitIndex 
+	 * saves more weighted delay than it can cost in energy.
+	 * 
+	 * @param startIndex start position of a bundle in the arrival array
+	 * @param splitIndex position of the last arrival of the first part
+	 * @param endIndex end position of a bundle in the arrival array
+	 * @return true if the split is strictly less costly
+	 */
+	private boolean splitSaves(int startIndex, int splitIndex, int endIndex)
+	{
+		int gap = arrival[endIndex] - arrival[splitIndex];
 		
-		for(int i = 0;i < Seq[lastIndex].size(); i++)
+		return alpha * (splitIndex - startIndex + 1) * gap > Math.min(gap, T);
+	}
+	
+	/**
+	 * Returns the largest number of bundles that were 
+	 * examined for a single arrival in the last run.
+	 * Without pruning this is the number of arrivals of
+	 * the longest independent segment.
+	 * 
+	 * @return The largest window length reached by the last run
+	 */
+	public int getMaxWindow()
+	{
+		return maxWindow;
+	}
+	
+	/**
+	 * Returns the counters of the last run, which are only
+	 * collected if Metrics.ENABLED is set.
+	 * 
+	 * @return The metrics of the last run, or null
+	 */
+	public Metrics getMetrics()
+	{
+		return metrics;
+	}
+	
+	/**
+	 * Rebuilds the optimal schedule by following the previous
+	 * grant indices back from the last arrival. Sets the grant
+	 * count and the grant times of the optimal solution.
+	 * 
+	 * @param previousGrant index of the previous grant for every arrival
+	 * @param lastIndex index of the last arrival
+	 */
+	private void reconstruct(int[] previousGrant, int lastIndex)
+	{
+		grantCount = 0;
+		
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
+			grantCount++;
+		
+		grantTimes = new int[grantCount];
+		
+		int k = grantCount;
+		
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
+			grantTimes[--k] = arrival[i];
+		
+		delays = new Histogram();
+		gaps = new Histogram();
+		
+		for (int i = lastIndex; i > 0; i = previousGrant[i])
 		{
-			if(Seq[lastIndex].get(i)){
-				grantCount++;				
-			}
+			int p = previousGrant[i];
+			
+			if(p > 0)
+				gaps.add(arrival[i] - arrival[p]);
+			
+			for (int j = p + 1; j <= i; j++)
+				delays.add(arrival[i] - arrival[j]);
 		}
+	}
+	
+	/**
+	 * Returns the times at which the optimal solution
+	 * makes its grants, in increasing order.
+	 * 
+	 * @return An array containing the grant times of the optimal solution
+	 */
+	public int[] getGrantTimes()
+	{
+		return grantTimes;
+	}
+	
+	/**
+	 * Returns the weighted delay cost of a bundle using
+	 * the method selected by the reference mode.
+	 * 
+	 * @param startIndex start position of a bundle in the arrival array
+	 * @param endIndex end position of a bundle in the arrival array
+	 * @return the value of the weighted delay cost incurred due to bundling
+	 */
+	private double delay(int startIndex, int endIndex)
+	{
+		if(referenceMode)
+			return accumulated_delay(startIndex, endIndex);
 		
-	}	
+		return bundle_delay(startIndex, endIndex);
+	}
+	
+	/**
+	 * Calculates the same weighted delay cost as 
+	 * accumulated_delay in constant time using the  
+	 * prefix sums of the arrival times.
+	 * 
+	 * @param startIndex start position of a bundle in the arrival array
+	 * @param endIndex end position of a bundle in the arrival array
+	 * @return the value of the weighted delay cost incurred due to bundling
+	 */
+	public double bundle_delay(int startIndex, int endIndex)
+	{
+		long delay = (long)(endIndex - startIndex + 1) * arrival[endIndex]
+				- (prefix[endIndex] - prefix[startIndex - 1]);
+		
+		return alpha * delay;
+	}
 	
 	/**
 	 * Calculates the weighted delay cost in case requests 
@@ -168,10 +642,51 @@ public class Offline {
 	 * @return A report object representing optimal solution
 	 */
 	public Report getReport(){
+		return new Report(totalCost - latency, latency, totalCost, 0, grantCount, delays, gaps);
+	}
+	
+	/**
+	 * Task that solves a range of segments, splitting the
+	 * range until a single segment or a few arrivals are left.
+	 */
+	private class SegmentTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private int[] first;
+		private int[] windows;
+		private double[] Cost;
+		private double[] D;
+		private int[] previousGrant;
+		private double[] second;
+		private int from;
+		private int to;
 		
-		System.out.println("Opt#: " + grantCount);
-		System.out.println("Opt Cost: " + totalCost + "\tOpt Delay(alpha_D): " + latency);
+		SegmentTask(int[] first, int[] windows, double[] Cost, double[] D, int[] previousGrant,
+				double[] second, int from, int to)
+		{
+			this.first = first;
+			this.windows = windows;
+			this.Cost = Cost;
+			this.D = D;
+			this.previousGrant = previousGrant;
+			this.second = second;
+			this.from = from;
+			this.to = to;
+		}
 		
-		return new Report(totalCost - latency, latency, totalCost, 0, grantCount);
+		@Override
+		protected void compute()
+		{
+			if(to - from > 1 && first[to] - first[from] > MIN_TASK_ARRIVALS){
+				int middle = (from + to) >>> 1;
+				invokeAll(new SegmentTask(first, windows, Cost, D, previousGrant, second, from, middle),
+						new SegmentTask(first, windows, Cost, D, previousGrant, second, middle, to));
+				return;
+			}
+			
+			for (int s = from; s < to; s++)
+				windows[s] = solve(first[s], first[s + 1] - 1, Cost, D, previousGrant, second);
+		}
 	}
 }
@@ -0,0 +1,349 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Class OfflineCheck
+ *
+ * Regression check of the offline engines. The cost, latency,
+ * grant count and grant times of Offline, with and without
+ * pruning of dominated bundles, are compared with those of
+ * the original O(n^3) dynamic program, kept here as it was
+ * first written, and the optimal cost of HullOffline with
+ * that of Offline without pruning. Offline solving its 
+ * segments in parallel and IncrementalOffline must match
+ * the reference as well, and on long traces they must 
+ * match Offline solving the whole trace in order. The 
+ * traces are bursty, log-normal and normal RandomIAT 
+ * traces and a few edge cases, over a grid of alpha and 
+ * tail time values. Every mismatch is printed, and the 
+ * exit status is 1 if there was any.
+ *
+ * Run with: java OfflineCheck
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class OfflineCheck {
+
+	// traces are kept short, the reference solution is O(n^3)
+	private static final int TRACE_LENGTH = 200;
+	
+	// long enough for the segments to be solved on several threads
+	private static final int PARALLEL_TRACE_LENGTH = 100000;
+
+	private static final int[] TAIL_TIMES = {50, 200, 1000};
+	private static final double[] ALPHAS = {0.0001, 0.001, 0.01, 0.1, 1, 10, 100};
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	private static int checks;
+	private static int failures;
+
+	public static void main(String[] args) {
+		List<int[]> traces = traces();
+		List<int[]> longTraces = longTraces();
+
+		for (int[] IAT : traces)
+			for (int T : TAIL_TIMES)
+				for (double alpha : ALPHAS)
+					check(T, IAT, alpha);
+
+		for (int[] IAT : longTraces)
+			for (int T : TAIL_TIMES)
+				for (double alpha : ALPHAS)
+					checkParallel(T, IAT, alpha);
+
+		System.out.println((traces.size() + longTraces.size()) + " traces, " + checks + " checks, "
+				+ failures + " failed");
+
+		if(failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Compares the engines with the reference solution for
+	 * a single trace, tail time and alpha value.
+	 */
+	private static void check(int T, int[] IAT, double alpha) {
+		Reference expected = new Reference(T, IAT, alpha);
+		String point = "T=" + T + " alpha=" + alpha + " n=" + IAT.length + ": ";
+
+		String[] modes = {"Offline reference mode", "Offline prefix sums", "Offline pruned", "Offline parallel"};
+		Report unpruned = null;
+
+		for (int mode = 0; mode < modes.length; mode++){
+			Offline offline = (mode == 3) ? new Offline(T, IAT, POOL) : new Offline(T, IAT);
+			offline.setAlpha(alpha);
+			offline.setReferenceMode(mode == 0);
+			offline.setPruning(mode >= 2);
+			offline.initialize();
+			offline.run();
+
+			compareSolution(point + modes[mode], expected, offline.getReport(), offline.getGrantTimes());
+
+			if(mode == 1)
+				unpruned = offline.getReport();
+		}
+
+		// the hull engine rebuilds latency and schedule from its
+		// own tie breaking, so only the optimal cost is compared
+		HullOffline hull = new HullOffline(T, IAT);
+		hull.setAlpha(alpha);
+		hull.initialize();
+		hull.run();
+
+		compare(point + "HullOffline", "total cost", unpruned.getTotalCost(), hull.getReport().getTotalCost());
+
+		compareTotals(point + "IncrementalOffline", expected.totalCost, expected.latency, expected.grantCount,
+				incremental(T, IAT, alpha).getReport());
+	}
+
+	/**
+	 * Compares Offline solving its segments in parallel and
+	 * IncrementalOffline with Offline solving the whole trace
+	 * in order, for a trace too long for the reference 
+	 * solution.
+	 */
+	private static void checkParallel(int T, int[] IAT, double alpha) {
+		String point = "T=" + T + " alpha=" + alpha + " n=" + IAT.length + ": ";
+
+		Offline sequential = new Offline(T, IAT);
+		sequential.setAlpha(alpha);
+		sequential.initialize();
+		sequential.run();
+
+		Offline parallel = new Offline(T, IAT, POOL);
+		parallel.setAlpha(alpha);
+		parallel.initialize();
+		parallel.run();
+
+		Report expected = sequential.getReport();
+		Report actual = parallel.getReport();
+		String engine = point + "Offline parallel";
+
+		compare(engine, "total cost", expected.getTotalCost(), actual.getTotalCost());
+		compare(engine, "latency", expected.getLatency(), actual.getLatency());
+
+		checks++;
+
+		if(!Arrays.equals(parallel.getGrantTimes(), sequential.getGrantTimes()))
+			fail(engine, "schedule", expected.getGrantCount() + " grants", actual.getGrantCount() + " grants");
+
+		compareTotals(point + "IncrementalOffline", expected.getTotalCost(), expected.getLatency(),
+				expected.getGrantCount(), incremental(T, IAT, alpha).getReport());
+	}
+
+	private static IncrementalOffline incremental(int T, int[] IAT, double alpha) {
+		IncrementalOffline incremental = new IncrementalOffline(T, alpha);
+
+		for (int iat : IAT)
+			incremental.append(iat);
+
+		return incremental;
+	}
+
+	/**
+	 * Compares the cost, latency and grant count of a solution
+	 * whose schedule is not kept.
+	 */
+	private static void compareTotals(String engine, double totalCost, double latency, long grantCount, Report report) {
+		compare(engine, "total cost", totalCost, report.getTotalCost());
+		compare(engine, "latency", latency, report.getLatency());
+
+		checks++;
+
+		if(report.getGrantCount() != grantCount)
+			fail(engine, "grant count", grantCount, report.getGrantCount());
+	}
+
+	/**
+	 * Compares the cost, latency, grant count and schedule of
+	 * a solution with those of the reference solution.
+	 */
+	private static void compareSolution(String engine, Reference expected, Report report, int[] grantTimes) {
+		compare(engine, "total cost", expected.totalCost, report.getTotalCost());
+		compare(engine, "latency", expected.latency, report.getLatency());
+
+		checks++;
+
+		if(report.getGrantCount() != expected.grantCount)
+			fail(engine, "grant count", expected.grantCount, report.getGrantCount());
+
+		checks++;
+
+		if(!Arrays.equals(grantTimes, expected.grantTimes))
+			fail(engine, "schedule", Arrays.toString(expected.grantTimes), Arrays.toString(grantTimes));
+	}
+
+	private static void compare(String engine, String what, double expected, double actual) {
+		checks++;
+
+		if(Double.compare(expected, actual) != 0)
+			fail(engine, what, expected, actual);
+	}
+
+	private static void fail(String engine, String what, Object expected, Object actual) {
+		failures++;
+		System.out.println(engine + " " + what + " is " + actual + ", expected " + expected);
+	}
+
+	/**
+	 * Builds the traces. RandomIAT prints what it generates,
+	 * which is discarded.
+	 */
+	private static List<int[]> traces() {
+		final RandomIAT random = new RandomIAT();
+		List<int[]> traces = new ArrayList<int[]>();
+
+		traces.add(quietly(() -> Arrays.copyOf(random.generateBurstyIAT(), TRACE_LENGTH)));
+		traces.add(quietly(() -> Arrays.copyOf(random.generateBurstyIAT(), TRACE_LENGTH)));
+		traces.add(quietly(() -> random.generateLogNormalIAT(TRACE_LENGTH, 200, 200, 100)));
+		traces.add(quietly(() -> random.generateLogNormalIAT(TRACE_LENGTH, 200, 100, 400)));
+		traces.add(quietly(() -> random.generateNormalIAT(TRACE_LENGTH, 200, 200, 80)));
+		traces.add(quietly(() -> random.generateNormalIAT(TRACE_LENGTH, 200, 50, 100)));
+
+		traces.add(new int[]{5});
+		traces.add(new int[]{0, 0, 3, 0});
+		traces.add(random.generateConstantIAT(20, 50));
+		traces.add(new int[]{1, 1, 1, 5000, 1, 1, 5000, 2});
+
+		return traces;
+	}
+
+	/**
+	 * Builds the long traces of the parallel check.
+	 */
+	private static List<int[]> longTraces() {
+		final RandomIAT random = new RandomIAT();
+		List<int[]> traces = new ArrayList<int[]>();
+
+		traces.add(quietly(() -> random.generateLogNormalIAT(PARALLEL_TRACE_LENGTH, 200, 200, 400)));
+		traces.add(quietly(() -> random.generateNormalIAT(PARALLEL_TRACE_LENGTH, 200, 100, 150)));
+
+		return traces;
+	}
+
+	private static int[] quietly(Supplier<int[]> generator) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		try {
+			return generator.get();
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * The dynamic program of Offline as it was first written:
+	 * every bundle delay is summed in a loop and the schedule
+	 * of every arrival is kept as a list of grant flags.
+	 */
+	private static class Reference {
+
+		double totalCost;
+		double latency;
+		int grantCount;
+		int[] grantTimes;
+
+		private int[] arrival;
+		private double alpha;
+
+		Reference(int T, int[] IAT, double alpha)
+		{
+			this.alpha = alpha;
+			arrival = new int[IAT.length + 1];
+
+			double C = 0.0;
+			double D_temp = 0.0;
+
+			double[] Cost = new double[arrival.length];
+			double[] D = new double[arrival.length];
+			List<List<Boolean>> Seq = new ArrayList<List<Boolean>>();
+
+			for (int i = 0; i < arrival.length; i++)
+				Seq.add(new ArrayList<Boolean>());
+
+			arrival[0] = 0;
+			arrival[1] = IAT[0];
+
+			for (int i = 2; i < arrival.length; i++)
+			{
+				arrival[i] = IAT[i - 1] + arrival[i - 1];
+			}
+
+			Cost[0] = 0; Cost[1] = 0;
+			D[0] = 0; D[1] = 0;
+			Seq.get(1).add(true);
+
+			for (int i = 2; i < arrival.length; i++)
+			{
+				Cost[i] = accumulated_delay(1,i);
+				D[i] = Cost[i];
+
+				for (int k = 1; k < i; k++)
+					Seq.get(i).add(false);
+
+				Seq.get(i).add(true);
+
+				for (int j = 1; j < i; j++)
+				{
+					C = Cost[i - j] + Math.min(arrival[i] - arrival[i - j], T);
+					D_temp = accumulated_delay(i - j + 1, i);
+
+					C += D_temp;
+					D_temp += D[i - j];
+
+					if(C < Cost[i]){
+						Cost[i] = C;
+						D[i] = D_temp;
+
+						Seq.get(i).clear();
+						Seq.get(i).addAll(Seq.get(i - j));
+
+						for (int k = 1; k < j; k++)
+							Seq.get(i).add(false);
+
+						Seq.get(i).add(true);
+					}
+				}
+			}
+
+			int lastIndex =  arrival.length - 1;
+
+			totalCost = Cost[lastIndex] + T;
+			latency = D[lastIndex];
+
+			List<Boolean> schedule = Seq.get(lastIndex);
+			List<Integer> grants = new ArrayList<Integer>();
+
+			for (int i = 0; i < schedule.size(); i++)
+				if(schedule.get(i))
+					grants.add(arrival[i + 1]);
+
+			grantCount = grants.size();
+			grantTimes = new int[grantCount];
+
+			for (int k = 0; k < grantCount; k++)
+				grantTimes[k] = grants.get(k);
+		}
+
+		private double accumulated_delay(int startIndex, int endIndex)
+		{
+			double delay = 0;
+
+			for (int k = startIndex; k <= endIndex; k++)
+			{
+				delay += (arrival[endIndex] - arrival[k]);
+			}
+
+			delay = alpha * delay;
+			return delay;
+		}
+	}
+}
@@ -0,0 +1,275 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Class OfflineCurve
+ *
+ * Computes the optimal offline cost as a function of alpha
+ * over a range of alpha values. Every schedule s has a fixed
+ * energy cost E_s and an unweighted delay D_s, so its total
+ * cost is the line E_s + alpha * D_s. The optimal cost is the
+ * lower envelope of these lines, which is concave and
+ * piecewise linear.
+ *
+ * The envelope is found by parametric search. The optimal
+ * schedules at both ends of the range give two lines. The
+ * offline solution is computed again where they intersect.
+ * If it is below both lines, a new line has been found and
+ * both halves are searched again. Otherwise the two lines
+ * are adjacent on the envelope. The number of offline runs
+ * is about twice the number of lines on the envelope. After
+ * that, the optimal cost for any alpha in the range is a
+ * binary search over the breakpoints.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ *
+ */
+public class OfflineCurve {
+
+	// relative difference below which two costs are considered equal
+	private static final double TOLERANCE = 1e-12;
+
+	// parameters of the bundling problem
+	private int T;
+	private int[] IAT;
+
+	//range of alpha values covered by the envelope
+	private double minAlpha;
+	private double maxAlpha;
+
+	//lines of the envelope in increasing order of alpha,
+	//line k is optimal between breakpoints k and k + 1
+	private double[] breakpoints;
+	private long[] energy;
+	private long[] delay;
+	private long[] grantCount;
+
+	//number of times the offline solution was computed
+	private int evaluations;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T tail time of the radio
+	 * @param IAT Array representing inter-arrival times
+	 */
+	public OfflineCurve(int T, int[] IAT)
+	{
+		this.T = T;
+		this.IAT = IAT;
+	}
+
+	/**
+	 * Computes the envelope of the optimal cost for all alpha
+	 * values between minAlpha and maxAlpha.
+	 *
+	 * @param minAlpha smallest alpha value, must be positive
+	 * @param maxAlpha largest alpha value
+	 */
+	public void run(double minAlpha, double maxAlpha)
+	{
+		if(minAlpha <= 0 || maxAlpha < minAlpha)
+			throw new IllegalArgumentException("Invalid alpha range: " + minAlpha + " to " + maxAlpha);
+
+		this.minAlpha = minAlpha;
+		this.maxAlpha = maxAlpha;
+		evaluations = 0;
+
+		HullOffline offline = new HullOffline(T, IAT);
+		ArrayList<Line> lines = new ArrayList<Line>();
+
+		Line left = solve(offline, minAlpha);
+		Line right = solve(offline, maxAlpha);
+
+		lines.add(left);
+
+		if(!left.equals(right))
+			lines.add(right);
+
+		// pairs of lines that may have other lines between them
+		ArrayDeque<Line[]> pending = new ArrayDeque<Line[]>();
+
+		if(left.delay > right.delay)
+			pending.push(new Line[]{left, right});
+
+		while (!pending.isEmpty())
+		{
+			Line[] pair = pending.pop();
+			Line l = pair[0], r = pair[1];
+
+			double alpha = (double)(r.energy - l.energy) / (l.delay - r.delay);
+
+			if(alpha <= minAlpha || alpha >= maxAlpha)
+				continue;
+
+			Line middle = solve(offline, alpha);
+			double envelope = l.cost(alpha);
+
+			if(middle.cost(alpha) < envelope - (TOLERANCE * envelope))
+			{
+				lines.add(middle);
+				pending.push(new Line[]{l, middle});
+				pending.push(new Line[]{middle, r});
+			}
+		}
+
+		// lines with larger delays are optimal for smaller alphas
+		Collections.sort(lines, new Comparator<Line>() {
+			public int compare(Line a, Line b) {
+				return Long.compare(b.delay, a.delay);
+			}
+		});
+
+		int m = lines.size();
+		breakpoints = new double[m + 1];
+		energy = new long[m];
+		delay = new long[m];
+		grantCount = new long[m];
+
+		breakpoints[0] = minAlpha;
+		breakpoints[m] = maxAlpha;
+
+		for (int k = 0; k < m; k++)
+		{
+			Line line = lines.get(k);
+			energy[k] = line.energy;
+			delay[k] = line.delay;
+			grantCount[k] = line.grantCount;
+
+			if(k > 0)
+				breakpoints[k] = (double)(line.energy - energy[k - 1]) / (delay[k - 1] - line.delay);
+		}
+	}
+
+	/**
+	 * Computes the optimal schedule for the given alpha.
+	 *
+	 * @param offline engine used for computing the optimal schedule
+	 * @param alpha Weight associated with delay
+	 * @return the line of the optimal schedule
+	 */
+	private Line solve(HullOffline offline, double alpha)
+	{
+		offline.setAlpha(alpha);
+		offline.initialize();
+		offline.run();
+		evaluations++;
+
+		return new Line(offline.getRadioOnTime(), offline.getTotalDelay(), offline.getReport().getGrantCount());
+	}
+
+	/**
+	 * Finds the line of the envelope that is optimal for alpha.
+	 *
+	 * @param alpha Weight associated with delay
+	 * @return index of the line
+	 */
+	private int segment(double alpha)
+	{
+		if(breakpoints == null)
+			throw new IllegalStateException("The envelope has not been computed");
+
+		if(alpha < minAlpha || alpha > maxAlpha)
+			throw new IllegalArgumentException("Alpha " + alpha + " is outside of " + minAlpha + " to " + maxAlpha);
+
+		int lo = 0, hi = energy.length - 1;
+
+		while (lo < hi)
+		{
+			int mid = (lo + hi + 1) >>> 1;
+
+			if(breakpoints[mid] <= alpha)
+				lo = mid;
+			else
+				hi = mid - 1;
+		}
+
+		return lo;
+	}
+
+	/**
+	 * Returns the optimal total cost for the given alpha.
+	 *
+	 * @param alpha Weight associated with delay
+	 * @return The total cost of the optimal solution
+	 */
+	public double getCost(double alpha)
+	{
+		int k = segment(alpha);
+		return energy[k] + (alpha * delay[k]);
+	}
+
+	/**
+	 * Creates a report object representing performance
+	 * metrics of the optimal solution for the given alpha
+	 *
+	 * @param alpha Weight associated with delay
+	 * @return A report object representing optimal solution
+	 */
+	public Report getReport(double alpha)
+	{
+		int k = segment(alpha);
+		double latency = alpha * delay[k];
+
+		return new Report(energy[k], latency, energy[k] + latency, 0, grantCount[k]);
+	}
+
+	/**
+	 * Returns the alpha values where the optimal schedule
+	 * changes, including both ends of the range.
+	 *
+	 * @return An array containing the breakpoints of the envelope
+	 */
+	public double[] getBreakpoints()
+	{
+		return breakpoints.clone();
+	}
+
+	/**
+	 * Returns the number of times the offline solution
+	 * was computed for building the envelope.
+	 *
+	 * @return The number of offline runs
+	 */
+	public int getEvaluations()
+	{
+		return evaluations;
+	}
+
+	/**
+	 * The cost line E + alpha * D of a single schedule.
+	 */
+	private static class Line {
+		final long energy;
+		final long delay;
+		final long grantCount;
+
+		Line(long energy, long delay, long grantCount)
+		{
+			this.energy = energy;
+			this.delay = delay;
+			this.grantCount = grantCount;
+		}
+
+		double cost(double alpha)
+		{
+			return energy + (alpha * delay);
+		}
+
+		public boolean equals(Object other)
+		{
+			if(!(other instanceof Line))
+				return false;
+
+			return energy == ((Line)other).energy && delay == ((Line)other).delay;
+		}
+
+		public int hashCode()
+		{
+			return Long.hashCode(energy) * 31 + Long.hashCode(delay);
+		}
+	}
+}
@@ -7,6 +7,10 @@ import java.util.Random;
  * Responsible for generating random sequences
  * of inter-arrival times.
  * 
+ * Long sequences are better generated with 
+ * TraceGenerator, which works in parallel and
+ * is not limited to INITIAL_SIZE bursts.
+ * 
  * @author Ali Sehati
  * @version 1.0
  *
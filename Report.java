@@ -5,7 +5,11 @@
  * performance of a bundling algorithm. This includes
  * energy, latency, total cost and grant count. It also 
  * holds the default cost attribute that is associated 
- * with the default algorithm.
+ * with the default algorithm, and the distributions of
+ * the request delays and of the times between grants
+ * when the algorithm records them. Engines that do not
+ * record them leave the histograms null, and the percentile
+ * getters then return -1.
  * 
  * @author Ali Sehati
  * @version 1.0
@@ -17,13 +21,15 @@ public class Report {
 	private double latency = 0.0;
 	private double totalCost = 0.0;
 	private double defaultCost = 0.0;
-	private int grantCount = 0;
+	private long grantCount = 0;
+	private Histogram delays;
+	private Histogram gaps;
 	
 	/**
 	 * Default Constructor
 	 * 
 	 * Creates a report object with all the attributes
-	 * set to 0.
+	 * set to 0, without histograms.
 	 */
 	public Report() {
 	}
@@ -32,7 +38,7 @@ public class Report {
 	 * Constructor
 	 * 
 	 * Creates a report that is initialized with the given values for
-	 * different attributes of the Report class
+	 * different attributes of the Report class, without histograms
 	 * 
 	 * @param energy energy cost of the algorithm
 	 * @param latency latency cost of the algorithm
@@ -40,7 +46,7 @@ public class Report {
 	 * @param defaultCost total cost of the default algorithm
 	 * @param grantCount number of grants made by the algorithm
 	 */
-	public Report( double energy, double latency, double totalCost, double defaultCost, int grantCount) {
+	public Report( double energy, double latency, double totalCost, double defaultCost, long grantCount) {
 		this.energy = energy;
 		this.latency = latency;
 		this.totalCost = totalCost;
@@ -48,6 +54,27 @@ public class Report {
 		this.defaultCost = defaultCost;
 	}
 	
+	/**
+	 * Constructor
+	 * 
+	 * Creates a report that also holds the distributions
+	 * of the request delays and the inter-grant times.
+	 * 
+	 * @param energy energy cost of the algorithm
+	 * @param latency latency cost of the algorithm
+	 * @param totalCost total cost of the algorithm
+	 * @param defaultCost total cost of the default algorithm
+	 * @param grantCount number of grants made by the algorithm
+	 * @param delays histogram of the delays of the requests, null if not recorded
+	 * @param gaps histogram of the times between consecutive grants, null if not recorded
+	 */
+	public Report( double energy, double latency, double totalCost, double defaultCost, long grantCount,
+			Histogram delays, Histogram gaps) {
+		this(energy, latency, totalCost, defaultCost, grantCount);
+		this.delays = delays;
+		this.gaps = gaps;
+	}
+	
 	/**
 	 * Returns a string representation of the report
 	 */
@@ -60,6 +87,16 @@ public class Report {
 		output += "\nTotal cost is: " + totalCost;
 		output += "\nDefault Cost is: " + defaultCost;
 		
+		if(delays != null && delays.getCount() > 0){
+			output += "\nDelay p50/p99/p999/max: " + getDelayP50() + "/" + getDelayP99() 
+					+ "/" + getDelayP999() + "/" + getMaxDelay();
+		}
+		
+		if(gaps != null && gaps.getCount() > 0){
+			output += "\nInter-grant p50/p99/p999/max: " + getGapP50() + "/" + getGapP99() 
+					+ "/" + getGapP999() + "/" + getMaxGap();
+		}
+		
 		return output;		
 	}
 	
@@ -68,7 +105,7 @@ public class Report {
 	 * 
 	 * @return the number of grants
 	 */
-	public double getGrantCount(){
+	public long getGrantCount(){
 		return grantCount;
 	}
 	
@@ -108,4 +145,93 @@ public class Report {
 		return energy;
 	}
 	
+	/**
+	 * Getter for the delay histogram
+	 * 
+	 * @return The distribution of the request delays, null if not recorded
+	 */
+	public Histogram getDelayHistogram(){
+		return delays;
+	}
+	
+	/**
+	 * Getter for the inter-grant histogram
+	 * 
+	 * @return The distribution of the times between consecutive grants, null if not recorded
+	 */
+	public Histogram getGapHistogram(){
+		return gaps;
+	}
+	
+	/**
+	 * Returns the median delay of a request
+	 * 
+	 * @return The 50th percentile of the request delays, -1 if not recorded
+	 */
+	public long getDelayP50(){
+		return (delays != null) ? delays.quantile(0.5) : -1;
+	}
+	
+	/**
+	 * Returns the 99th percentile of the request delays
+	 * 
+	 * @return The 99th percentile of the request delays, -1 if not recorded
+	 */
+	public long getDelayP99(){
+		return (delays != null) ? delays.quantile(0.99) : -1;
+	}
+	
+	/**
+	 * Returns the 99.9th percentile of the request delays
+	 * 
+	 * @return The 99.9th percentile of the request delays, -1 if not recorded
+	 */
+	public long getDelayP999(){
+		return (delays != null) ? delays.quantile(0.999) : -1;
+	}
+	
+	/**
+	 * Returns the largest delay of a request
+	 * 
+	 * @return The largest request delay, -1 if not recorded
+	 */
+	public long getMaxDelay(){
+		return (delays != null) ? delays.getMax() : -1;
+	}
+	
+	/**
+	 * Returns the median time between grants
+	 * 
+	 * @return The 50th percentile of the inter-grant times, -1 if not recorded
+	 */
+	public long getGapP50(){
+		return (gaps != null) ? gaps.quantile(0.5) : -1;
+	}
+	
+	/**
+	 * Returns the 99th percentile of the times between grants
+	 * 
+	 * @return The 99th percentile of the inter-grant times, -1 if not recorded
+	 */
+	public long getGapP99(){
+		return (gaps != null) ? gaps.quantile(0.99) : -1;
+	}
+	
+	/**
+	 * Returns the 99.9th percentile of the times between grants
+	 * 
+	 * @return The 99.9th percentile of the inter-grant times, -1 if not recorded
+	 */
+	public long getGapP999(){
+		return (gaps != null) ? gaps.quantile(0.999) : -1;
+	}
+	
+	/**
+	 * Returns the largest time between grants
+	 * 
+	 * @return The largest inter-grant time, -1 if not recorded
+	 */
+	public long getMaxGap(){
+		return (gaps != null) ? gaps.getMax() : -1;
+	}
 }
@@ -0,0 +1,600 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class ReportCache
+ *
+ * Keeps the reports of earlier runs, so the same trace, tail
+ * time and alpha value are simulated or solved only once. A
+ * report is looked up by a fingerprint of the inter-arrival
+ * times, the tail time, the alpha value and the kind of run
+ * that produced it.
+ *
+ * The cache has two tiers. The memory tier holds the most
+ * recently used reports, up to a number of entries. The
+ * optional disk tier keeps one small file per report in a
+ * directory, so reports survive restarts and can be shared by
+ * several processes. Files are written to a temporary file
+ * first and then moved into place, so a reader never sees a
+ * partly written report. Once the files take more than a
+ * number of bytes, the least recently used ones are deleted.
+ *
+ * The sizes of the files and the order they were used in are
+ * kept in an index in memory, loaded from the directory when
+ * the cache is created, so eviction never reads the directory.
+ * Files are read and written outside of any lock, which is
+ * only held to update the index. Files written by other
+ * processes are added to the index once they are read, and
+ * deleting files to make room is only a cleanup: a file that
+ * cannot be deleted is left behind.
+ *
+ * Reports returned by the cache are shared, and their
+ * histograms must not be changed.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class ReportCache {
+
+	// kinds of run
+	public static final int SIMULATOR = 1;
+	public static final int OFFLINE = 2;
+	public static final int HULL_OFFLINE = 3;
+
+	private static final String SUFFIX = ".rep";
+	private static final int MAGIC = 0x52455031; // "REP1"
+
+	// multipliers of the fingerprint, those of xxHash64
+	private static final long P1 = 0x9E3779B185EBCA87L;
+	private static final long P2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long P3 = 0x165667B19E3779F9L;
+	private static final long P4 = 0x85EBCA77C2B2AE63L;
+
+	private Map<Key, Report> memory;
+
+	private Path directory;
+	private long maxDiskBytes;
+
+	// sizes of the files by name, least recently used first, guarded by itself
+	private Map<String, Long> index = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	private long diskBytes;
+
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor
+	 *
+	 * Creates a cache that is kept in memory only.
+	 *
+	 * @param maxEntries Number of reports kept in memory
+	 */
+	public ReportCache(final int maxEntries)
+	{
+		if(maxEntries < 0)
+			throw new IllegalArgumentException("Invalid number of entries: " + maxEntries);
+
+		memory = new LinkedHashMap<Key, Report>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<Key, Report> eldest)
+			{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Creates a cache that is also kept in a directory.
+	 * Reports already in the directory are found by later
+	 * lookups.
+	 *
+	 * @param maxEntries Number of reports kept in memory
+	 * @param directory Directory the reports are kept in
+	 * @param maxDiskBytes Number of bytes the files of the reports may take
+	 * @throws IOException If the directory cannot be created or read
+	 */
+	public ReportCache(int maxEntries, Path directory, long maxDiskBytes) throws IOException
+	{
+		this(maxEntries);
+
+		if(maxDiskBytes < 0)
+			throw new IllegalArgumentException("Invalid disk size: " + maxDiskBytes);
+
+		Files.createDirectories(directory);
+
+		this.directory = directory;
+		this.maxDiskBytes = maxDiskBytes;
+
+		load();
+	}
+
+	/**
+	 * Computes a 64-bit fingerprint of a sequence of
+	 * inter-arrival times. The hash reads the sequence once,
+	 * two times per step with four independent lanes, and
+	 * includes its length.
+	 *
+	 * @param IAT Sequence of inter-arrival times
+	 * @return The fingerprint of the sequence
+	 */
+	public static long fingerprint(int[] IAT)
+	{
+		int n = IAT.length;
+		int i = 0;
+		long h;
+
+		if(n >= 8){
+			long v1 = P1 + P2;
+			long v2 = P2;
+			long v3 = 0;
+			long v4 = -P1;
+
+			for(; i + 8 <= n; i += 8){
+				v1 = round(v1, pair(IAT, i));
+				v2 = round(v2, pair(IAT, i + 2));
+				v3 = round(v3, pair(IAT, i + 4));
+				v4 = round(v4, pair(IAT, i + 6));
+			}
+
+			h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			h = merge(h, v1);
+			h = merge(h, v2);
+			h = merge(h, v3);
+			h = merge(h, v4);
+		}
+		else{
+			h = P3;
+		}
+
+		h += 4L * n;
+
+		for(; i < n; i++)
+			h = Long.rotateLeft(h ^ ((IAT[i] & 0xFFFFFFFFL) * P1), 23) * P2 + P3;
+
+		h ^= h >>> 33;
+		h *= P2;
+		h ^= h >>> 29;
+		h *= P3;
+		h ^= h >>> 32;
+
+		return h;
+	}
+
+	private static long pair(int[] IAT, int i)
+	{
+		return (IAT[i] & 0xFFFFFFFFL) | ((long)IAT[i + 1] << 32);
+	}
+
+	private static long round(long acc, long value)
+	{
+		return Long.rotateLeft(acc + value * P2, 31) * P1;
+	}
+
+	private static long merge(long h, long v)
+	{
+		return (h ^ round(0, v)) * P1 + P4;
+	}
+
+	/**
+	 * Looks up a report, first in memory and then on disk.
+	 * A report found on disk is kept in memory as well.
+	 *
+	 * @param fingerprint Fingerprint of the inter-arrival times
+	 * @param T Radio tail time
+	 * @param alpha Weight given to delay
+	 * @param kind Kind of run that produced the report
+	 * @return The report, or null if it is not in the cache
+	 */
+	public Report get(long fingerprint, int T, double alpha, int kind)
+	{
+		Key key = new Key(fingerprint, T, alpha, kind);
+		Report report;
+
+		synchronized(memory){
+			report = memory.get(key);
+		}
+
+		if(report == null && directory != null){
+			report = read(key);
+
+			if(report != null){
+				synchronized(memory){
+					memory.put(key, report);
+				}
+			}
+		}
+
+		if(report != null)
+			hits.incrementAndGet();
+		else
+			misses.incrementAndGet();
+
+		return report;
+	}
+
+	/**
+	 * Adds a report to the cache, in memory and on disk.
+	 *
+	 * @param fingerprint Fingerprint of the inter-arrival times
+	 * @param T Radio tail time
+	 * @param alpha Weight given to delay
+	 * @param kind Kind of run that produced the report
+	 * @param report The report
+	 */
+	public void put(long fingerprint, int T, double alpha, int kind, Report report)
+	{
+		Key key = new Key(fingerprint, T, alpha, kind);
+
+		synchronized(memory){
+			memory.put(key, report);
+		}
+
+		if(directory != null)
+			write(key, report);
+	}
+
+	/**
+	 * Returns the report of a Simulator run, running the
+	 * simulator only if the report is not in the cache.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param alpha Weight given to delay
+	 * @return The report of the run
+	 */
+	public Report simulate(int T, int[] IAT, double alpha)
+	{
+		long fingerprint = fingerprint(IAT);
+		Report report = get(fingerprint, T, alpha, SIMULATOR);
+
+		if(report == null){
+			Simulator online = new Simulator(T, IAT, SimulationSink.NONE);
+			online.setAlpha(alpha);
+			online.initialize();
+			online.run();
+
+			report = online.getReport();
+			put(fingerprint, T, alpha, SIMULATOR, report);
+		}
+
+		return report;
+	}
+
+	/**
+	 * Returns the report of an Offline run, solving the
+	 * problem only if the report is not in the cache.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param alpha Weight given to delay
+	 * @return The report of the optimal solution
+	 */
+	public Report offline(int T, int[] IAT, double alpha)
+	{
+		long fingerprint = fingerprint(IAT);
+		Report report = get(fingerprint, T, alpha, OFFLINE);
+
+		if(report == null){
+			Offline offline = new Offline(T, IAT);
+			offline.setAlpha(alpha);
+			offline.initialize();
+			offline.run();
+
+			report = offline.getReport();
+			put(fingerprint, T, alpha, OFFLINE, report);
+		}
+
+		return report;
+	}
+
+	/**
+	 * Returns the number of lookups that found a report
+	 *
+	 * @return The number of hits
+	 */
+	public long getHitCount()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups that found no report
+	 *
+	 * @return The number of misses
+	 */
+	public long getMissCount()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of bytes the files of the reports take
+	 *
+	 * @return The size of the disk tier, 0 if there is none
+	 */
+	public long getDiskBytes()
+	{
+		synchronized(index){
+			return diskBytes;
+		}
+	}
+
+	/**
+	 * Reads the file of a report. A file that cannot be read
+	 * or parsed, or that belongs to another key, is a miss
+	 * and is deleted.
+	 */
+	private Report read(Key key)
+	{
+		String name = key.fileName();
+		Path file = directory.resolve(name);
+		byte[] bytes;
+		Report report;
+
+		try{
+			bytes = Files.readAllBytes(file);
+
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+
+			if(in.readInt() != MAGIC || in.readLong() != key.fingerprint || in.readInt() != key.T
+					|| in.readLong() != key.alphaBits || in.readInt() != key.kind)
+				throw new EOFException();
+
+			double energy = in.readDouble();
+			double latency = in.readDouble();
+			double totalCost = in.readDouble();
+			double defaultCost = in.readDouble();
+			long grantCount = in.readLong();
+			Histogram delays = readHistogram(in);
+			Histogram gaps = readHistogram(in);
+
+			report = new Report(energy, latency, totalCost, defaultCost, grantCount, delays, gaps);
+		}
+		catch(NoSuchFileException e){
+			unindex(name);
+			return null;
+		}
+		catch(IOException e){
+			discard(file);
+			unindex(name);
+			return null;
+		}
+
+		// marks the file as used, or adds a file written by another process
+		index(name, bytes.length);
+
+		// other processes and later runs find the least recently
+		// used files by their times, a file that cannot be touched
+		// is only evicted sooner
+		try{
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		}
+		catch(IOException e){
+			// not touched
+		}
+
+		return report;
+	}
+
+	/**
+	 * Writes the file of a report and evicts files if the
+	 * disk tier has grown too large.
+	 */
+	private void write(Key key, Report report)
+	{
+		String name = key.fileName();
+		Path file = directory.resolve(name);
+		byte[] bytes;
+
+		try{
+			bytes = reportBytes(key, report);
+
+			Path temporary = Files.createTempFile(directory, "report-", ".tmp");
+
+			try{
+				Files.write(temporary, bytes);
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally{
+				// left behind only if the report was not moved into place
+				discard(temporary);
+			}
+		}
+		catch(IOException e){
+			throw new UncheckedIOException(e);
+		}
+
+		index(name, bytes.length);
+	}
+
+	/**
+	 * Writes a report to a byte array.
+	 */
+	private static byte[] reportBytes(Key key, Report report) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(MAGIC);
+		out.writeLong(key.fingerprint);
+		out.writeInt(key.T);
+		out.writeLong(key.alphaBits);
+		out.writeInt(key.kind);
+		out.writeDouble(report.getEnergy());
+		out.writeDouble(report.getLatency());
+		out.writeDouble(report.getTotalCost());
+		out.writeDouble(report.getDefaultCost());
+		out.writeLong(report.getGrantCount());
+		writeHistogram(out, report.getDelayHistogram());
+		writeHistogram(out, report.getGapHistogram());
+		out.flush();
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes a histogram after a flag telling whether the
+	 * report recorded it.
+	 */
+	private static void writeHistogram(DataOutputStream out, Histogram histogram) throws IOException
+	{
+		out.writeBoolean(histogram != null);
+
+		if(histogram != null)
+			histogram.write(out);
+	}
+
+	private static Histogram readHistogram(DataInputStream in) throws IOException
+	{
+		return in.readBoolean() ? Histogram.read(in) : null;
+	}
+
+	/**
+	 * Loads the index from the directory, least recently used
+	 * files first, and evicts files if they take too much room.
+	 */
+	private void load() throws IOException
+	{
+		final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<Path, BasicFileAttributes>();
+
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)){
+			for(Path file : stream){
+				try{
+					attributes.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+				}
+				catch(NoSuchFileException e){
+					// deleted by another process
+				}
+			}
+		}
+
+		List<Path> files = new ArrayList<Path>(attributes.keySet());
+		files.sort(Comparator.comparing(file -> attributes.get(file).lastModifiedTime()));
+
+		for(Path file : files)
+			index(file.getFileName().toString(), attributes.get(file).size());
+	}
+
+	/**
+	 * Records the size of a file as the most recently used
+	 * one, and deletes the least recently used files until
+	 * the rest fit in maxDiskBytes.
+	 */
+	private void index(String name, long size)
+	{
+		List<String> evicted = new ArrayList<String>();
+
+		synchronized(index){
+			Long replaced = index.put(name, size);
+			diskBytes += size - ((replaced == null) ? 0 : replaced);
+
+			Iterator<Map.Entry<String, Long>> eldest = index.entrySet().iterator();
+
+			while(diskBytes > maxDiskBytes && eldest.hasNext()){
+				Map.Entry<String, Long> entry = eldest.next();
+
+				evicted.add(entry.getKey());
+				diskBytes -= entry.getValue();
+				eldest.remove();
+			}
+		}
+
+		for(String file : evicted)
+			discard(directory.resolve(file));
+	}
+
+	/**
+	 * Removes a file that is gone or discarded from the index.
+	 */
+	private void unindex(String name)
+	{
+		synchronized(index){
+			Long size = index.remove(name);
+
+			if(size != null)
+				diskBytes -= size;
+		}
+	}
+
+	/**
+	 * Deletes a file whose deletion is only a cleanup, such
+	 * as a corrupt or evicted report or a temporary file. A
+	 * file that cannot be deleted is left behind.
+	 */
+	private static void discard(Path file)
+	{
+		try{
+			Files.deleteIfExists(file);
+		}
+		catch(IOException e){
+			// left behind
+		}
+	}
+
+	/**
+	 * Key of a report. The alpha value is compared by its
+	 * bits, so every distinct value has its own report.
+	 */
+	private static final class Key {
+
+		private final long fingerprint;
+		private final int T;
+		private final long alphaBits;
+		private final int kind;
+
+		Key(long fingerprint, int T, double alpha, int kind)
+		{
+			this.fingerprint = fingerprint;
+			this.T = T;
+			this.alphaBits = Double.doubleToLongBits(alpha);
+			this.kind = kind;
+		}
+
+		String fileName()
+		{
+			return String.format("%016x-%d-%016x-%d", fingerprint, T, alphaBits, kind) + SUFFIX;
+		}
+
+		public boolean equals(Object other)
+		{
+			if(!(other instanceof Key))
+				return false;
+
+			Key key = (Key)other;
+
+			return fingerprint == key.fingerprint && T == key.T && alphaBits == key.alphaBits && kind == key.kind;
+		}
+
+		public int hashCode()
+		{
+			long h = fingerprint * 31 + T;
+			h = h * 31 + alphaBits;
+			h = h * 31 + kind;
+
+			return (int)(h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,195 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Class SegmentCheck
+ *
+ * Regression check of SegmentSimulator. The energy, latency,
+ * default cost, grant count and the delay and inter-grant
+ * histograms are compared with those of a Simulator and a
+ * StreamSimulator run over the same trace, for segment sizes
+ * from a single arrival up to the default. Traces longer than
+ * 2^31 time units, which Simulator cannot run, are compared
+ * with StreamSimulator only. Every mismatch is printed, and
+ * the exit status is 1 if there was any.
+ *
+ * Run with: java SegmentCheck
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class SegmentCheck {
+
+	private static final long SEED = 19;
+
+	private static final int TRACE_LENGTH = 20000;
+
+	private static final int[] TAIL_TIMES = {50, 200, 1000};
+	private static final double[] ALPHAS = {0.0001, 0.001, 0.01, 0.1, 1, 10};
+	private static final int[] SEGMENT_SIZES = {1, 7, 100, 5000, SegmentSimulator.DEFAULT_SEGMENT_SIZE};
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	private static int checks;
+	private static int failures;
+
+	public static void main(String[] args) {
+		List<int[]> traces = traces();
+		List<int[]> longTraces = longTraces();
+
+		for (int[] IAT : traces)
+			for (int T : TAIL_TIMES)
+				for (double alpha : ALPHAS)
+					check(T, IAT, alpha, true);
+
+		for (int[] IAT : longTraces)
+			for (double alpha : ALPHAS)
+				check(100, IAT, alpha, false);
+
+		System.out.println((traces.size() + longTraces.size()) + " traces, " + checks + " checks, "
+				+ failures + " failed");
+
+		if(failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Compares SegmentSimulator with every segment size to
+	 * the single-threaded engines for a single trace, tail
+	 * time and alpha value.
+	 */
+	private static void check(int T, int[] IAT, double alpha, boolean withSimulator) {
+		String point = "T=" + T + " alpha=" + alpha + " n=" + IAT.length + ": ";
+
+		StreamSimulator stream = new StreamSimulator(T, new ArrayArrivalSource(IAT));
+		stream.setAlpha(alpha);
+		stream.initialize();
+		stream.run();
+
+		Report expected = stream.getReport();
+
+		if(withSimulator){
+			Simulator simulator = new Simulator(T, IAT);
+			simulator.setAlpha(alpha);
+			simulator.initialize();
+			simulator.run();
+
+			expected = simulator.getReport();
+			compare(point + "StreamSimulator", expected, stream.getReport());
+		}
+
+		for (int size : SEGMENT_SIZES){
+			SegmentSimulator segments = new SegmentSimulator(T, IAT, POOL);
+			segments.setAlpha(alpha);
+			segments.setSegmentSize(size);
+			segments.run();
+
+			compare(point + "SegmentSimulator, segment size " + size, expected, segments.getReport());
+		}
+	}
+
+	private static void compare(String engine, Report expected, Report actual) {
+		compare(engine, "energy", expected.getEnergy(), actual.getEnergy());
+		compare(engine, "latency", expected.getLatency(), actual.getLatency());
+		compare(engine, "default cost", expected.getDefaultCost(), actual.getDefaultCost());
+		compare(engine, "grant count", expected.getGrantCount(), actual.getGrantCount());
+		compare(engine + " delays", expected.getDelayHistogram(), actual.getDelayHistogram());
+		compare(engine + " gaps", expected.getGapHistogram(), actual.getGapHistogram());
+	}
+
+	private static void compare(String what, Histogram expected, Histogram actual) {
+		compare(what, "count", expected.getCount(), actual.getCount());
+		compare(what, "max", expected.getMax(), actual.getMax());
+		compare(what, "mean", expected.getMean(), actual.getMean());
+
+		for (double q : QUANTILES)
+			compare(what, "quantile " + q, expected.quantile(q), actual.quantile(q));
+	}
+
+	private static void compare(String engine, String what, double expected, double actual) {
+		checks++;
+
+		if(Double.compare(expected, actual) != 0){
+			failures++;
+			System.out.println(engine + " " + what + " is " + actual + ", expected " + expected);
+		}
+	}
+
+	/**
+	 * Builds the traces. RandomIAT prints what it generates,
+	 * which is discarded.
+	 */
+	private static List<int[]> traces() {
+		final RandomIAT random = new RandomIAT();
+		List<int[]> traces = new ArrayList<int[]>();
+
+		traces.add(quietly(() -> Arrays.copyOf(random.generateBurstyIAT(), TRACE_LENGTH)));
+		traces.add(quietly(() -> random.generateLogNormalIAT(TRACE_LENGTH, 200, 200, 400)));
+		traces.add(quietly(() -> random.generateNormalIAT(TRACE_LENGTH, 200, 100, 150)));
+		traces.add(bursty(new Random(SEED), TRACE_LENGTH));
+
+		traces.add(new int[]{5});
+		traces.add(new int[]{0, 0, 3, 0});
+		traces.add(random.generateConstantIAT(20, 50));
+		traces.add(new int[]{1, 1, 1, 5000, 1, 1, 5000, 2});
+
+		return traces;
+	}
+
+	/**
+	 * Builds traces longer than 2^31 time units: one that
+	 * alternates short and long inter-arrival times, and a
+	 * bursty one with idle periods of up to a day.
+	 */
+	private static List<int[]> longTraces() {
+		List<int[]> traces = new ArrayList<int[]>();
+		int[] alternating = new int[8000];
+
+		for (int i = 0; i < alternating.length; i++)
+			alternating[i] = (i % 2 == 0) ? 1 : 1000000;
+
+		traces.add(alternating);
+
+		Random random = new Random(SEED);
+		int[] idle = bursty(random, TRACE_LENGTH);
+
+		for (int i = 0; i < idle.length; i += 1 + random.nextInt(200))
+			idle[i] = 1000000 + random.nextInt(86400000);
+
+		traces.add(idle);
+
+		return traces;
+	}
+
+	/**
+	 * Builds a trace of bursts of short inter-arrival times
+	 * between gaps above the tail times.
+	 */
+	private static int[] bursty(Random random, int length) {
+		int[] IAT = new int[length];
+
+		for (int i = 0; i < length; i++)
+			IAT[i] = (random.nextInt(8) == 0) ? 300 + random.nextInt(3000) : random.nextInt(60);
+
+		return IAT;
+	}
+
+	private static int[] quietly(Supplier<int[]> generator) {
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+		try {
+			return generator.get();
+		} finally {
+			System.setOut(out);
+		}
+	}
+}
@@ -0,0 +1,358 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class SegmentSimulator
+ *
+ * Simulates the break-even bundling algorithm over a single
+ * long trace on several cores. Once the bundle before an
+ * arrival has been granted and the tail of that grant is over
+ * when the arrival comes, break-even treats the arrival like
+ * the first one of a trace: the grants that follow depend on
+ * the past only through the accumulated totals. The trace is
+ * cut at inter-arrival times larger than T, which are the only
+ * places where this can happen, and the segments between the
+ * cuts are simulated in parallel as if every cut were such a
+ * place.
+ *
+ * Whether a cut really is one depends on the grants before it,
+ * so the cuts are checked in order once all segments are done.
+ * If the bundle before a cut was not granted, or the radio was
+ * still in its tail at the cut, the segment after the cut is
+ * simulated again, continuing from the state at the end of the
+ * segment before it.
+ *
+ * Every segment keeps the latency cost of each of its grants,
+ * and the latency costs are added up in trace order when the
+ * segments are merged, so the costs, the grant count and the
+ * histograms are identical to those of a Simulator run over
+ * the same trace. The clock is 64-bit, as in StreamSimulator,
+ * so traces may be longer than 2^31 time units.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class SegmentSimulator {
+
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 16;
+
+	// size of the window a cut is chosen in, as a fraction of the segment size
+	private static final int CUT_WINDOW_RATIO = 8;
+
+	private int T;
+	private int[] IAT;
+	private double alpha;
+	private ForkJoinPool pool;
+	private int segmentSize = DEFAULT_SEGMENT_SIZE;
+
+	//desire performance metrics
+	private double energy;
+	private double latency;
+	private double defaultCost;
+	private long grantCount;
+	private int segmentCount;
+
+	//distributions of request delays and inter-grant times
+	private Histogram delays;
+	private Histogram gaps;
+
+	/**
+	 * Constructor
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param pool Pool the segments are simulated on
+	 */
+	public SegmentSimulator(int T, int[] IAT, ForkJoinPool pool) {
+		this.T = T;
+		this.IAT = IAT;
+		this.pool = pool;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Simulates the segments on the common pool.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	public SegmentSimulator(int T, int[] IAT) {
+		this(T, IAT, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Setter for alpha parameter
+	 *
+	 * @param alpha Weight given to delay
+	 */
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+
+	/**
+	 * Setter for the segment size. A segment ends at an
+	 * inter-arrival time larger than T after it has this
+	 * many arrivals, so segments may be longer.
+	 *
+	 * @param segmentSize Smallest number of arrivals of a segment
+	 */
+	public void setSegmentSize(int segmentSize) {
+		if(segmentSize <= 0)
+			throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Simulates the whole trace.
+	 */
+	public void run() {
+		energy = 0;
+		latency = 0;
+		defaultCost = 0;
+		grantCount = 0;
+		segmentCount = 0;
+		delays = new Histogram();
+		gaps = new Histogram();
+
+		// a trace without arrivals never turns the radio on
+		if(IAT.length == 0)
+			return;
+
+		Segment[] segments = cut();
+
+		pool.invoke(new SegmentTask(segments, 0, segments.length));
+
+		Segment current = segments[0];
+		Segment previous = null;
+
+		for(int s = 1; s < segments.length; s++){
+			Segment next = segments[s];
+
+			if(current.endsIdle(T, IAT)){
+				add(previous, current);
+				previous = current;
+				current = next;
+			}
+			else{
+				// the cut was not safe, carry the true state over it
+				current.run(T, alpha, IAT, next.from, next.to);
+			}
+		}
+
+		add(previous, current);
+
+		if(current.lane.bufferCount > 0)
+			throw new IllegalStateException("The last bundle was never granted");
+
+		energy += T; // Add the tail energy after last grant
+		defaultCost += T;
+	}
+
+	/**
+	 * Creates a report object of the performance
+	 * metrics of the algorithm's run
+	 *
+	 * @return A report object representing performance of the algorithm
+	 */
+	public Report getReport() {
+		return new Report(energy, latency, energy + latency, defaultCost, grantCount, delays, gaps);
+	}
+
+	/**
+	 * Returns the number of segments
+	 *
+	 * @return The number of segments of the last run that were
+	 *         simulated independently, after the unsafe cuts
+	 *         were removed
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Cuts the trace into segments of at least segmentSize
+	 * arrivals. Every segment but the first starts at the
+	 * largest inter-arrival time above T among the window of
+	 * arrivals after segmentSize, since the longer the gap,
+	 * the more likely the bundle before it was granted and
+	 * the tail is over.
+	 */
+	private Segment[] cut() {
+		List<Segment> segments = new ArrayList<Segment>();
+		int window = Math.max(1, segmentSize / CUT_WINDOW_RATIO);
+
+		int from = 0;
+		long start = 0;
+		long clock = 0;
+		int i = 0;
+
+		while(i < IAT.length){
+			int target = (int)Math.min(IAT.length, (long)from + segmentSize);
+			int end = (int)Math.min(IAT.length, (long)target + window);
+			int best = -1;
+
+			for(int j = target; j < end; j++)
+				if(IAT[j] > T && (best < 0 || IAT[j] > IAT[best]))
+					best = j;
+
+			// no gap in the window, take the first one after it
+			if(best < 0)
+				for(best = end; best < IAT.length && IAT[best] <= T; best++);
+
+			for(; i < best; i++)
+				clock += IAT[i];
+
+			if(best == IAT.length)
+				break;
+
+			segments.add(new Segment(from, best, start));
+			from = best;
+			start = clock;
+		}
+
+		segments.add(new Segment(from, IAT.length, start));
+
+		return segments.toArray(new Segment[0]);
+	}
+
+	/**
+	 * Adds the results of a segment to the totals. The first
+	 * grant of the segment ends the inter-grant time and the
+	 * tail that the previous segment left open.
+	 */
+	private void add(Segment previous, Segment segment) {
+		if(previous != null){
+			if(previous.lane.lastGrant > 0)
+				energy += Math.min(segment.firstGrant - previous.lane.lastGrant, T);
+
+			gaps.add(segment.firstGrant - previous.lane.lastGrant);
+		}
+
+		energy += segment.lane.energy;
+
+		// in trace order, as floating point addition is not associative
+		for(int g = 0; g < segment.lane.grantCount; g++)
+			latency += segment.grantLatencies[g];
+
+		defaultCost += segment.defaultCost;
+		grantCount += segment.lane.grantCount;
+		delays.merge(segment.delays);
+		gaps.merge(segment.gaps);
+		segmentCount++;
+	}
+
+	/**
+	 * State and results of a segment. The segment starts as
+	 * if no grant had been made yet, at the time of the
+	 * arrival before it, and can be continued over the next
+	 * segment when the cut between them turns out not to be
+	 * safe.
+	 */
+	private static class Segment {
+
+		private int from;
+		private int to;
+
+		private Simulator.Lane lane = new Simulator.Lane();
+		private long firstGrant;
+		private double defaultCost;
+
+		// latency cost of every grant of the segment
+		private double[] grantLatencies = new double[16];
+
+		private Histogram delays = new Histogram();
+		private Histogram gaps = new Histogram();
+
+		Segment(int from, int to, long start) {
+			this.from = from;
+			this.to = to;
+			lane.lastArrival = start;
+		}
+
+		/**
+		 * Returns whether the arrival after the segment finds
+		 * the bundle granted and the radio idle.
+		 */
+		boolean endsIdle(int T, int[] IAT) {
+			return lane.bufferCount == 0 && (lane.lastGrant == 0 || lane.lastArrival + IAT[to] - lane.lastGrant >= T);
+		}
+
+		/**
+		 * Simulates the arrivals from..to-1 with
+		 * Simulator.arrive().
+		 */
+		void run(int T, double alpha, int[] IAT, int from, int to) {
+			for(int index = from; index < to; index++)
+			{
+				int gap = IAT[index];
+
+				if(lane.lastArrival > 0)
+					defaultCost += Math.min(gap, T);
+
+				double nextIAT = (index + 1 == IAT.length) ? Double.MAX_VALUE : IAT[index + 1];
+
+				long grantTime = Simulator.arrive(lane, alpha, T, gap, nextIAT, gaps);
+
+				if(grantTime < 0)
+					continue;
+
+				if(lane.grantCount == 1)
+					firstGrant = grantTime;
+
+				if(lane.grantCount > grantLatencies.length)
+					grantLatencies = Arrays.copyOf(grantLatencies, 2 * grantLatencies.length);
+
+				grantLatencies[(int)lane.grantCount - 1] = lane.grantLatency;
+
+				// walk back over the arrivals of the bundle
+				long arrival = lane.lastArrival;
+
+				for(int k = 0; k < lane.granted; k++){
+					delays.add(grantTime - arrival);
+					arrival -= IAT[index - k];
+				}
+			}
+
+			this.to = to;
+		}
+	}
+
+	/**
+	 * Task that simulates a range of segments, splitting the
+	 * range until a single segment is left.
+	 */
+	private class SegmentTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private Segment[] segments;
+		private int from;
+		private int to;
+
+		SegmentTask(Segment[] segments, int from, int to)
+		{
+			this.segments = segments;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > 1){
+				int middle = (from + to) >>> 1;
+				invokeAll(new SegmentTask(segments, from, middle),
+						new SegmentTask(segments, middle, to));
+				return;
+			}
+
+			for(int s = from; s < to; s++)
+				segments[s].run(T, alpha, IAT, segments[s].from, segments[s].to);
+		}
+	}
+}
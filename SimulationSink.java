@@ -0,0 +1,70 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Interface SimulationSink
+ * 
+ * Receives the per-request and per-grant values that a
+ * simulator logs: the arrival sequence, the delay of every
+ * request and the time between consecutive grants. Runs
+ * for different alpha values are separated by beginRun().
+ * 
+ * Methods other than close() report write failures with 
+ * an UncheckedIOException, so the simulation loop does 
+ * not have to handle checked exceptions.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public interface SimulationSink extends Closeable {
+
+	/**
+	 * Sink that discards everything. A simulator given
+	 * this sink skips logging altogether.
+	 */
+	SimulationSink NONE = new NullSink();
+	
+	/**
+	 * Logs the arrival sequence, once per simulator.
+	 * 
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	void arrivals(int[] IAT);
+	
+	/**
+	 * Starts the section of a new run.
+	 * 
+	 * @param alpha Weight given to delay in the run
+	 */
+	void beginRun(double alpha);
+	
+	/**
+	 * Logs the delay of a granted request.
+	 * 
+	 * @param delay Time from the arrival of the request to its grant
+	 */
+	void delay(long delay);
+	
+	/**
+	 * Logs a grant.
+	 * 
+	 * @param interGrant Time since the previous grant
+	 */
+	void grant(long interGrant);
+	
+	/**
+	 * Creates a new, empty directory for the logs of one 
+	 * simulator, so that simulators running at the same 
+	 * time never write to the same files.
+	 * 
+	 * @param base Directory the run directory is created in
+	 * @return The path of the new directory
+	 * @throws IOException If the directory cannot be created
+	 */
+	static Path runDirectory(Path base) throws IOException {
+		Files.createDirectories(base);
+		return Files.createTempDirectory(base, "run-");
+	}
+}
@@ -1,8 +1,4 @@
-import java.io.FileNotFoundException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
-import java.util.ArrayList;
-import java.util.Queue;
+import java.io.IOException;
 
 /**
  * Class Simulator
@@ -22,7 +18,9 @@ import java.util.Queue;
  */
 
 public class Simulator {
-	public static final boolean DEBUG = false;
+	
+	// returned by grantOffset when the bundle is not granted
+	static final double NO_GRANT = -1;
 
 	private double alpha;
 	private int T;
@@ -38,72 +36,71 @@ public class Simulator {
 	private double accumulatedDelay; // in each aggregation cycle
 
 	private boolean isRunning ;
+	
+	// if set, run() uses the event-free loop
+	private boolean eventFree;
 
-	private ArrayList<Integer> bufferedArrivals;	
+	private IntRing bufferedArrivals;	
 
-	Queue<Event> eventList;
+	EventHeap eventList;
 
-	//handles for logging files
-	private PrintWriter arrivalWriter;
-	private PrintWriter grantWriter;
-	private PrintWriter delayWriter;
+	//destination of the logs, only used if logging is set
+	private boolean logging;
+	private SimulationSink sink;
 
 	//desire performance metrics
 	private double energy;
 	private double latency;
 	private double totalCost;
 	private double defaultCost;
+	
+	//distributions of request delays and inter-grant times
+	private Histogram delays;
+	private Histogram gaps;
+	
+	//counters of the last run, null unless metrics are enabled
+	private Metrics metrics;
 
 	/**
 	 * Constructor
 	 * 
 	 * Initializes tail time and inter-arrival
 	 * time sequence. Then it creates the priority
-	 * list used for scheduling events. It also
-	 * creates files used for logging purposes.
+	 * list used for scheduling events. Nothing
+	 * is logged.
 	 * 
 	 * @param T Radio tail time
 	 * @param IAT Sequence of inter-arrival times
 	 */
 	public Simulator(int T, int[] IAT){
-		this.T = T;
-		this.IAT = IAT;
-		eventList = new java.util.PriorityQueue<Event>();
-		bufferedArrivals = new ArrayList<Integer>();
-		
-		createLogFiles();
+		this(T, IAT, SimulationSink.NONE);
 	}
 	
 	/**
-	 * Creates the files used for logging purposes.
-	 * These files hold arrival times, delay of individual
-	 * requests and also inter-grant times.
+	 * Constructor
 	 * 
+	 * Same as Simulator(T, IAT), except that arrival
+	 * times, delay of individual requests and inter-grant
+	 * times are logged to the given sink. Simulators 
+	 * with a NullSink skip logging, share no state and 
+	 * can run in parallel.
+	 * 
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param sink Destination of the logs
 	 */
-	public void createLogFiles()
-	{
-		String arrivalFileName = "log_arrival" + ".txt";
-		String delayFileName = "log_delay" + ".txt";
-		String grantFileName = "log_grant" + ".txt";
-
-		try {
-			arrivalWriter = new PrintWriter(arrivalFileName, "UTF-8");
-			delayWriter = new PrintWriter(delayFileName, "UTF-8");
-			if(DEBUG)
-			{
-				grantWriter = new PrintWriter(grantFileName, "UTF-8");
-			}
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
-		}
-
+	public Simulator(int T, int[] IAT, SimulationSink sink){
+		this.T = T;
+		this.IAT = IAT;
+		this.sink = sink;
+		this.logging = !(sink instanceof NullSink);
+		eventList = new EventHeap();
+		bufferedArrivals = new IntRing();
+		
 		// Arrival times are independent of alpha values
-		// So we write in arrival log file only once
-		// in the constructor.
-		for(int i = 0; i < IAT.length; i++)
-			arrivalWriter.println(IAT[i]);
+		// So we log them only once in the constructor.
+		if(logging)
+			sink.arrivals(IAT);
 	}
 
 	/**
@@ -129,11 +126,14 @@ public class Simulator {
 		this.latency = 0;
 		this.totalCost = 0;
 		this.defaultCost = 0;
+		
+		this.delays = new Histogram();
+		this.gaps = new Histogram();
 
 		this.isRunning = true;
 
 		eventList.clear();
-		eventList.add( new Arrival(IAT[0]));
+		eventList.add( IAT[0], EventHeap.ARRIVAL );
 	}
 
 	/**
@@ -147,20 +147,31 @@ public class Simulator {
 	}
 	
 	/**
-	 * Starts a new section in log files for delay and
+	 * Selects the engine used by run(). The event-free engine
+	 * computes the grant times in a straight loop over the 
+	 * inter-arrival times instead of going through the event 
+	 * list. This is possible because break-even only has one 
+	 * pending grant and one pending arrival at any time, and
+	 * the grant always comes first. Both engines produce 
+	 * identical reports and log files.
+	 * 
+	 * @param eventFree true to use the event-free engine
+	 */
+	public void setEventFree(boolean eventFree)
+	{
+		this.eventFree = eventFree;
+	}
+	
+	/**
+	 * Starts a new section in the logs for delay and
 	 * grant. This new section is marked by the value 
 	 * of the associated alpha for that experiment.
 	 * 
 	 */
 	public void setupLogFiles()
 	{	
-		delayWriter.println("\n=========================================");
-		delayWriter.println("Alpha = " + alpha);
-
-		if(DEBUG){
-			grantWriter.println("\n=========================================");
-			grantWriter.println("Alpha = " + alpha);
-		}
+		if(logging)
+			sink.beginRun(alpha);
 	}
 
 
@@ -169,33 +180,88 @@ public class Simulator {
 	 */
 	public void run() {
 
-		while(isRunning){
-			Event currentEvent = eventList.remove();
+		if(Metrics.ENABLED){
+			metrics = new Metrics(eventFree ? "Simulator (event-free)" : "Simulator", IAT.length);
+			metrics.begin();
+		}
 
-			clock = currentEvent.getTime();
+		if(eventFree){
+			runEventFree();
+		}
+		else{
+			while(isRunning){
+				long currentEvent = eventList.remove();
 
-			// Process the next event.
-			this.handle( currentEvent );
+				clock = (int)EventHeap.time( currentEvent );
+
+				// the event list held the event as well
+				if(Metrics.ENABLED)
+					metrics.event(EventHeap.type( currentEvent ), eventList.size() + 1);
+
+				// Process the next event.
+				this.handle( EventHeap.type( currentEvent ) );
+			}
+		}
+
+		if(Metrics.ENABLED)
+			metrics.end();
+	}
+
+	/**
+	 * Event-free running loop of the simulator. Every
+	 * iteration handles one arrival and the grant that
+	 * follows it, if there is one.
+	 */
+	private void runEventFree() {
+		eventList.clear();
+
+		while(current_IAT_Index < IAT.length){
+			clock = lastArrival + IAT[current_IAT_Index];
+
+			double offset = arrive();
+
+			if(Metrics.ENABLED)
+				metrics.event(EventHeap.ARRIVAL, 0);
+
+			if(offset != NO_GRANT){
+				clock += (int)offset;
+				grant();
+
+				if(Metrics.ENABLED)
+					metrics.event(EventHeap.GRANT, 0);
+			}
 		}
+
+		if(bufferCount > 0)
+			throw new IllegalStateException("The last bundle was never granted");
+
+		end();
+
+		if(Metrics.ENABLED)
+			metrics.event(EventHeap.END, 0);
 	}
 
 	/**
 	 * General handle method that calls specific
 	 * handle methods depending on the type of the
-	 * event object passed as argument.
+	 * event popped from the event heap.
 	 * 
-	 * @param event The event popped from priority queue
+	 * @param type The type of the event popped from the event heap
 	 */
-	private void handle( Event event ) {		
-
-		if ( event instanceof Arrival ) {
-			this.handle( (Arrival) event );
-		} else if ( event instanceof End ) {
-			this.handle( (End) event );
-		} else if ( event instanceof Grant ) {
-			this.handle( (Grant) event );
-		} else {
-			throw new IllegalArgumentException( "Event type not recognized: " + event );
+	private void handle( int type ) {		
+
+		switch ( type ) {
+		case EventHeap.ARRIVAL:
+			this.handleArrival();
+			break;
+		case EventHeap.END:
+			this.handleEnd();
+			break;
+		case EventHeap.GRANT:
+			this.handleGrant();
+			break;
+		default:
+			throw new IllegalArgumentException( "Event type not recognized: " + type );
 		}
 	}
 
@@ -206,11 +272,26 @@ public class Simulator {
 	 * the next arrival event using the next element from 
 	 * IAT. It also updates variables related to performance
 	 * metrics.
+	 */
+	private void handleArrival() {
+		double offset = arrive();
+
+		if(offset != NO_GRANT)
+			eventList.add( clock + (int)offset, EventHeap.GRANT );
+
+		//schedule the next arrival
+		if(current_IAT_Index < IAT.length)
+			eventList.add( clock + IAT[current_IAT_Index], EventHeap.ARRIVAL );
+	}
+
+	/**
+	 * Updates the simulation variables for a request 
+	 * arriving at the current clock.
 	 * 
-	 * @param event Event representing a request arrival
+	 * @return The time from now until the next grant, or NO_GRANT
 	 */
-	private void handle( Arrival event ) {
-		double t_1 = 0.0, t_2 = 0.0, nextIAT = 0.0;
+	private double arrive() {
+		double nextIAT = 0.0;
 		
 		if(lastArrival > 0)
 			defaultCost += Math.min(clock - lastArrival, T);
@@ -228,38 +309,159 @@ public class Simulator {
 		else
 			nextIAT = IAT[current_IAT_Index];
 
+		return grantOffset(alpha, T, clock, lastGrant, accumulatedDelay, bufferCount, nextIAT);
+	}
+
+	/**
+	 * Break-even policy for the bundle that is buffered right
+	 * after an arrival. A grant is made when the energy cost and
+	 * the weighted delay cost of the bundle become equal, which
+	 * happens t_1 after the arrival if the tail of the last grant 
+	 * is over by then, and t_2 after the arrival otherwise.
+	 * No grant is made if the next arrival comes first.
+	 * 
+	 * @param alpha Weight given to delay
+	 * @param T Radio tail time
+	 * @param clock Time of the arrival
+	 * @param lastGrant Time of the last grant, 0 if there is none
+	 * @param accumulatedDelay Delay of the buffered requests up to the arrival
+	 * @param bufferCount Number of buffered requests including the arrival
+	 * @param nextIAT Time until the next arrival
+	 * @return The time from the arrival until the grant, or NO_GRANT
+	 */
+	static double grantOffset(double alpha, int T, long clock, long lastGrant, 
+			double accumulatedDelay, long bufferCount, double nextIAT) {
+		double t_1 = 0.0, t_2 = 0.0;
+		
 		t_1 =  (T - (alpha * accumulatedDelay))/(alpha * bufferCount);
 
 		if(alpha >= 1)
-			eventList.add( new Grant( clock ) );
+			return 0;
 
 		else if ( ((clock - lastGrant) >= T) || (lastGrant == 0))
 		{					
 			if ((t_1 > 0) && (t_1 < nextIAT)){
-				eventList.add( new Grant( clock + (int)t_1 ) );
+				return t_1;
 			}
 			else if (t_1 <= 0){
-				eventList.add( new Grant( clock ) );
+				return 0;
 			}
 		}
 		else
 		{
 			t_2 = (clock - lastGrant - (alpha * accumulatedDelay)) / ((alpha * bufferCount) - 1);
 
-			if (((int)t_2) == 0){
-				eventList.add(new Grant(clock));
+			if (((long)t_2) == 0){
+				return 0;
 			}
 			else if ((t_2 > 0) && (clock + t_2 - lastGrant < T) && (t_2 < nextIAT)){
-				eventList.add( new Grant( clock + (int)t_2 ) );
+				return t_2;
 			}
 			else if ((t_1 > 0) && (clock + t_1 - lastGrant >= T) && (t_1 < nextIAT)){
-				eventList.add( new Grant( clock + (int)t_1 ) );
+				return t_1;
 			}
 		}
+		
+		return NO_GRANT;
+	}
 
-		//schedule the next arrival
-		if(current_IAT_Index < IAT.length)
-			eventList.add( new Arrival( clock + IAT[current_IAT_Index] ) );
+	/**
+	 * Break-even state of a single device or alpha value,
+	 * for the engines that step through the arrivals
+	 * themselves instead of scheduling events. It is
+	 * updated by arrive() and grant().
+	 */
+	static final class Lane {
+
+		long lastArrival;
+		long lastGrant;
+		long bufferCount;
+		long grantCount;
+		double accumulatedDelay; // in each aggregation cycle
+
+		double energy;
+		double latency;
+
+		// number of requests and latency cost of the last granted bundle
+		long granted;
+		double grantLatency;
+
+		/**
+		 * Clears the state for a new run.
+		 */
+		void reset() {
+			lastArrival = 0;
+			lastGrant = 0;
+			bufferCount = 0;
+			grantCount = 0;
+			accumulatedDelay = 0;
+			energy = 0;
+			latency = 0;
+			granted = 0;
+			grantLatency = 0;
+		}
+	}
+
+	/**
+	 * Buffers a request arriving gap after the previous one
+	 * and grants the bundle if the break-even policy makes
+	 * the grant before the next arrival. The arithmetic is
+	 * the same as that of a Simulator run.
+	 *
+	 * @param lane State of the device
+	 * @param alpha Weight given to delay
+	 * @param T Radio tail time
+	 * @param gap Time since the previous arrival
+	 * @param nextIAT Time until the next arrival, Double.MAX_VALUE after the last one
+	 * @param gaps Histogram the inter-grant time is added to, or null
+	 * @return The time of the grant, or -1 if the bundle is not granted
+	 */
+	static long arrive(Lane lane, double alpha, int T, long gap, double nextIAT, Histogram gaps) {
+		long clock = lane.lastArrival + gap;
+
+		lane.lastArrival = clock;
+		lane.accumulatedDelay += (lane.bufferCount * gap);
+		lane.bufferCount++;
+
+		double offset = grantOffset(alpha, T, clock, lane.lastGrant, lane.accumulatedDelay, lane.bufferCount, nextIAT);
+
+		if(offset == NO_GRANT)
+			return -1;
+
+		long time = clock + (long)offset;
+
+		grant(lane, alpha, T, time, gaps);
+
+		return time;
+	}
+
+	/**
+	 * Grants the buffered requests of a device, adding the
+	 * energy since the last grant and the weighted delay of
+	 * the bundle. Its size and latency cost are kept in
+	 * lane.granted and lane.grantLatency.
+	 *
+	 * @param lane State of the device
+	 * @param alpha Weight given to delay
+	 * @param T Radio tail time
+	 * @param time Time of the grant
+	 * @param gaps Histogram the inter-grant time is added to, or null
+	 */
+	static void grant(Lane lane, double alpha, int T, long time, Histogram gaps) {
+		if (lane.lastGrant > 0)
+			lane.energy += Math.min(time - lane.lastGrant, T);
+
+		lane.grantLatency = alpha * (lane.accumulatedDelay + (lane.bufferCount * (time - lane.lastArrival)));
+		lane.latency += lane.grantLatency;
+
+		if(gaps != null && lane.grantCount > 0)
+			gaps.add(time - lane.lastGrant);
+
+		lane.granted = lane.bufferCount;
+		lane.lastGrant = time;
+		lane.grantCount++;
+		lane.accumulatedDelay = 0;
+		lane.bufferCount = 0;
 	}
 
 	/**
@@ -267,29 +469,40 @@ public class Simulator {
 	 * Updates simulation variables related to performance
 	 * metrics. In case no more arrival is left from IAT array,
 	 * it schedules the end event. 
-	 * 
-	 * @param event Event representing granting the current request bundle
 	 */
-	private void handle( Grant event ) {
+	private void handleGrant() {
+		grant();
+
+		if(current_IAT_Index == IAT.length)
+			eventList.add( clock, EventHeap.END );
+	}
+
+	/**
+	 * Grants the buffered requests at the current clock.
+	 */
+	private void grant() {
 		if (lastGrant > 0)
 			energy += Math.min(clock - lastGrant, T);
 
 		latency += alpha * (accumulatedDelay + (bufferCount * (clock - lastArrival)));
 
-		if(DEBUG){
-			grantWriter.printf("%d\t", clock - lastGrant);
-		}
+		if(grantCount > 0)
+			gaps.add(clock - lastGrant);
+
+		if(logging)
+			sink.grant(clock - lastGrant);
 
 		lastGrant = clock;
 		grantCount++;
 		accumulatedDelay = 0;
 		bufferCount = 0;
 
-		if(current_IAT_Index == IAT.length)
-			eventList.add( new End( clock ) );
+		for(int i = 0; i < bufferedArrivals.size(); i++){
+			int delay = clock - bufferedArrivals.get(i);
+			delays.add(delay);
 
-		for(int i = 0; i < bufferedArrivals.size(); i++){			
-			delayWriter.printf("%d\t", clock - bufferedArrivals.get(i));
+			if(logging)
+				sink.delay(delay);
 		}
 
 		bufferedArrivals.clear();
@@ -299,30 +512,42 @@ public class Simulator {
 	 * Handle for End event
 	 * Updates simulation variables and finalizes
 	 * some logging tasks.
-	 * 
-	 * @param event Event representing the end of simulation
 	 */
-	private void handle( End event ) {
+	private void handleEnd() {
+		end();
+	}
 
+	/**
+	 * Ends the simulation at the current clock.
+	 */
+	private void end() {
 		this.isRunning = false;
 		energy += T; // Add the tail energy after last grant
 		defaultCost += T;
 
 		bufferedArrivals.clear();
+	}
 
-		if(DEBUG){
-			System.out.println("End happened at " + clock);
-			grantWriter.close();
-		}		
+	/**
+	 * Closes the sink of the logs.
+	 * 
+	 * @throws IOException If the logs cannot be written
+	 */
+	public void closeLogFiles() throws IOException
+	{
+		if(logging)
+			sink.close();
 	}
 
 	/**
-	 * Close previously opened log files.
+	 * Returns the counters of the last run, which are only
+	 * collected if Metrics.ENABLED is set.
+	 * 
+	 * @return The metrics of the last run, or null
 	 */
-	public void closeLogFiles()
+	public Metrics getMetrics()
 	{
-		arrivalWriter.close();
-		delayWriter.close();
+		return metrics;
 	}
 
 	/**
@@ -334,18 +559,7 @@ public class Simulator {
 	public Report getReport(){
 		totalCost = energy + latency;
 
-		if(DEBUG){
-			System.out.println("\n==============================================");
-			System.out.println("Total Arrivals: " + IAT.length);
-			System.out.println("Grant Count is: " + grantCount);
-			System.out.println("Energy cost is: " + energy);
-			System.out.println("Latency cost is: " + latency);
-			System.out.println("Total cost is: " + totalCost);
-			System.out.println("Default Cost is: " + defaultCost);
-			System.out.println("Average Delay: " + latency/(alpha * IAT.length));
-		}
-
-		return new Report(energy, latency, totalCost, defaultCost, grantCount);
+		return new Report(energy, latency, totalCost, defaultCost, grantCount, delays, gaps);
 	}
 }
 
@@ -0,0 +1,457 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Class StreamSimulator
+ * 
+ * Simulates the break-even bundling algorithm over an
+ * arrival source that is read lazily, one inter-arrival
+ * time ahead of the current arrival. Times and counters
+ * are 64-bit, so traces with billions of arrivals can be
+ * simulated without holding them in memory.
+ * 
+ * The grant decisions are the same as in Simulator. As
+ * no log files are written, only the performance metrics
+ * of the run and the histograms of the request delays and
+ * inter-grant times are available. The arrival times of the
+ * buffered requests are kept until their bundle is granted,
+ * as in Simulator.
+ * 
+ * A long run can write checkpoints of its state every number
+ * of arrivals. The state is copied into a Checkpoint, which
+ * a CheckpointWriter saves on its own thread, so the run does
+ * not wait for the disk. After a crash, resume() continues
+ * from the last saved checkpoint with a new source over the
+ * same trace.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class StreamSimulator {
+
+	private double alpha;
+	private int T;
+	private ArrivalSource source;
+	
+	// next inter-arrival time read from the source, or -1 at the end
+	private long pendingIAT;
+	
+	private long clock;
+	private long arrivalCount;
+	
+	// state of the bundle, energy and latency
+	private Simulator.Lane lane = new Simulator.Lane();
+	
+	// arrival times of the buffered requests, lane.bufferCount of them
+	private long[] bufferedArrivals = new long[16];
+	
+	//desire performance metrics
+	private double defaultCost;
+	
+	//distributions of request delays and inter-grant times
+	private Histogram delays = new Histogram();
+	private Histogram gaps = new Histogram();
+	
+	// arrival count of the next checkpoint, never reached if there is no writer
+	private long nextCheckpoint = Long.MAX_VALUE;
+	private long checkpointInterval;
+	private CheckpointWriter checkpointWriter;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param T Radio tail time
+	 * @param source Sequence of inter-arrival times
+	 */
+	public StreamSimulator(int T, ArrivalSource source) {
+		this.T = T;
+		this.source = source;
+	}
+	
+	/**
+	 * Setter for alpha parameter
+	 * 
+	 * @param alpha Weight given to delay
+	 */
+	public void setAlpha(double alpha) {
+		this.alpha = alpha;
+	}
+	
+	/**
+	 * Initializer
+	 * 
+	 * Sets all state and metrics to 0 and reads the
+	 * first inter-arrival time from the source.
+	 */
+	public void initialize() {
+		this.clock = 0;
+		this.arrivalCount = 0;
+		this.defaultCost = 0;
+		
+		lane.reset();
+		delays.clear();
+		gaps.clear();
+		
+		pendingIAT = source.hasNext() ? source.next() : -1;
+		
+		if(checkpointWriter != null)
+			nextCheckpoint = checkpointInterval;
+	}
+	
+	/**
+	 * Initializer
+	 * 
+	 * Sets all state and metrics to those of a checkpoint
+	 * and moves the source to the arrival after it. The
+	 * source must be a new source over the trace of the
+	 * checkpoint, and T and alpha must be the same.
+	 * 
+	 * @param checkpoint State of an earlier run over the trace
+	 * @throws IllegalArgumentException If the checkpoint does not belong to this run
+	 */
+	public void resume(Checkpoint checkpoint) {
+		if(checkpoint.T != T || Double.compare(checkpoint.alpha, alpha) != 0)
+			throw new IllegalArgumentException("Checkpoint of T=" + checkpoint.T + ", alpha=" + checkpoint.alpha
+					+ " cannot resume T=" + T + ", alpha=" + alpha);
+		
+		if(source.skip(checkpoint.arrivalCount) != checkpoint.arrivalCount)
+			throw new IllegalArgumentException("Trace ends before the checkpoint");
+		
+		pendingIAT = source.hasNext() ? source.next() : -1;
+		
+		if(pendingIAT != checkpoint.pendingIAT)
+			throw new IllegalArgumentException("Checkpoint does not belong to this trace");
+		
+		this.clock = checkpoint.clock;
+		this.arrivalCount = checkpoint.arrivalCount;
+		this.defaultCost = checkpoint.defaultCost;
+		
+		lane.reset();
+		lane.lastArrival = checkpoint.lastArrival;
+		lane.lastGrant = checkpoint.lastGrant;
+		lane.bufferCount = checkpoint.bufferCount;
+		lane.grantCount = checkpoint.grantCount;
+		lane.accumulatedDelay = checkpoint.accumulatedDelay;
+		lane.energy = checkpoint.energy;
+		lane.latency = checkpoint.latency;
+		
+		delays = checkpoint.delays.copy();
+		gaps = checkpoint.gaps.copy();
+		bufferedArrivals = Arrays.copyOf(checkpoint.bufferedArrivals, Math.max(16, checkpoint.bufferedArrivals.length));
+		
+		if(checkpointWriter != null)
+			nextCheckpoint = arrivalCount + checkpointInterval;
+	}
+	
+	/**
+	 * Sets up checkpoints, which take effect at the next
+	 * initialize() or resume().
+	 * 
+	 * @param writer Writer the checkpoints are handed to, null for none
+	 * @param interval Number of arrivals between checkpoints
+	 */
+	public void setCheckpoints(CheckpointWriter writer, long interval) {
+		if(writer != null && interval <= 0)
+			throw new IllegalArgumentException("Invalid interval: " + interval);
+		
+		this.checkpointWriter = writer;
+		this.checkpointInterval = interval;
+		this.nextCheckpoint = Long.MAX_VALUE;
+	}
+	
+	/**
+	 * Copies the state of the run
+	 * 
+	 * @return A checkpoint of the run after the arrivals handled so far
+	 */
+	public Checkpoint checkpoint() {
+		return new Checkpoint(this);
+	}
+	
+	/**
+	 * Main running loop of the simulator
+	 */
+	public void run() {
+		while(advance() >= 0)
+			;
+	}
+	
+	/**
+	 * Handles the next arrival and the grant that follows 
+	 * it, if there is one. After the last arrival the 
+	 * simulation is ended.
+	 * 
+	 * @return The inter-arrival time of the handled arrival, or -1 if there was none
+	 */
+	public long advance() {
+		if(pendingIAT < 0)
+			return -1;
+		
+		long gap = pendingIAT;
+		pendingIAT = source.hasNext() ? source.next() : -1;
+		
+		if(lane.lastArrival > 0)
+			defaultCost += Math.min(gap, T);
+		
+		arrivalCount++;
+		
+		if(lane.bufferCount == bufferedArrivals.length)
+			bufferedArrivals = Arrays.copyOf(bufferedArrivals, 2 * bufferedArrivals.length);
+		
+		bufferedArrivals[(int)lane.bufferCount] = lane.lastArrival + gap;
+		
+		double nextIAT = (pendingIAT < 0) ? Double.MAX_VALUE : pendingIAT;
+		long grantTime = Simulator.arrive(lane, alpha, T, gap, nextIAT, gaps);
+		
+		for(int k = 0; k < lane.granted && grantTime >= 0; k++)
+			delays.add(grantTime - bufferedArrivals[k]);
+		
+		clock = (grantTime < 0) ? lane.lastArrival : grantTime;
+		
+		if(pendingIAT < 0)
+			end();
+		else if(arrivalCount == nextCheckpoint){
+			checkpointWriter.submit(checkpoint());
+			nextCheckpoint += checkpointInterval;
+		}
+		
+		return gap;
+	}
+	
+	/**
+	 * Ends the simulation after the last grant.
+	 */
+	private void end() {
+		if(lane.bufferCount > 0)
+			throw new IllegalStateException("The last bundle was never granted");
+		
+		lane.energy += T; // Add the tail energy after last grant
+		defaultCost += T;
+	}
+	
+	/**
+	 * Returns the number of arrivals handled so far
+	 * 
+	 * @return The number of arrivals
+	 */
+	public long getArrivalCount() {
+		return arrivalCount;
+	}
+	
+	/**
+	 * Returns the number of requests waiting for a grant
+	 * 
+	 * @return The number of buffered requests
+	 */
+	public long getBufferCount() {
+		return lane.bufferCount;
+	}
+	
+	/**
+	 * Checks whether there are more arrivals to handle.
+	 * Once there are none, the tail after the last grant
+	 * is included in the metrics.
+	 * 
+	 * @return true if advance() will handle another arrival
+	 */
+	public boolean hasNext() {
+		return pendingIAT >= 0;
+	}
+	
+	/**
+	 * Creates a report object of the performance 
+	 * metrics of the algorithm's run. The histograms are
+	 * copies, so the run can go on after the report is taken.
+	 * 
+	 * @return A report object representing performance of the algorithm
+	 */
+	public Report getReport() {
+		return new Report(lane.energy, lane.latency, lane.energy + lane.latency, defaultCost, lane.grantCount,
+				delays.copy(), gaps.copy());
+	}
+	
+	/**
+	 * State of a StreamSimulator run after an arrival, with
+	 * T and alpha, which a run over the same trace can be
+	 * resumed from. A checkpoint is written as a single
+	 * record with a checksum. Its size grows with the number
+	 * of buffered requests and the used histogram buckets.
+	 */
+	public static class Checkpoint {
+		
+		private static final int MAGIC = 0x434B5031; // "CKP1"
+		
+		private int T;
+		private double alpha;
+		
+		private long pendingIAT;
+		private long clock;
+		private long lastArrival;
+		private long lastGrant;
+		private long bufferCount;
+		private long grantCount;
+		private long arrivalCount;
+		private double accumulatedDelay;
+		
+		private double energy;
+		private double latency;
+		private double defaultCost;
+		
+		private long[] bufferedArrivals;
+		private Histogram delays;
+		private Histogram gaps;
+		
+		private Checkpoint() {
+		}
+		
+		Checkpoint(StreamSimulator simulator) {
+			this.T = simulator.T;
+			this.alpha = simulator.alpha;
+			this.pendingIAT = simulator.pendingIAT;
+			this.clock = simulator.clock;
+			this.lastArrival = simulator.lane.lastArrival;
+			this.lastGrant = simulator.lane.lastGrant;
+			this.bufferCount = simulator.lane.bufferCount;
+			this.grantCount = simulator.lane.grantCount;
+			this.arrivalCount = simulator.arrivalCount;
+			this.accumulatedDelay = simulator.lane.accumulatedDelay;
+			this.energy = simulator.lane.energy;
+			this.latency = simulator.lane.latency;
+			this.defaultCost = simulator.defaultCost;
+			this.bufferedArrivals = Arrays.copyOf(simulator.bufferedArrivals, (int)bufferCount);
+			this.delays = simulator.delays.copy();
+			this.gaps = simulator.gaps.copy();
+		}
+		
+		/**
+		 * Returns the number of arrivals
+		 * 
+		 * @return The number of arrivals handled before the checkpoint
+		 */
+		public long getArrivalCount() {
+			return arrivalCount;
+		}
+		
+		/**
+		 * Writes the checkpoint to a file. The record is
+		 * written to a temporary file, forced to the disk and
+		 * then moved over the file, so the file always holds
+		 * a complete checkpoint.
+		 * 
+		 * @param file Path of the checkpoint file
+		 * @throws IOException If the file cannot be written
+		 */
+		public void write(Path file) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			
+			out.writeInt(MAGIC);
+			out.writeInt(T);
+			out.writeDouble(alpha);
+			out.writeLong(pendingIAT);
+			out.writeLong(clock);
+			out.writeLong(lastArrival);
+			out.writeLong(lastGrant);
+			out.writeLong(bufferCount);
+			out.writeLong(grantCount);
+			out.writeLong(arrivalCount);
+			out.writeDouble(accumulatedDelay);
+			out.writeDouble(energy);
+			out.writeDouble(latency);
+			out.writeDouble(defaultCost);
+			
+			for(int k = 0; k < bufferCount; k++)
+				out.writeLong(bufferedArrivals[k]);
+			
+			delays.write(out);
+			gaps.write(out);
+			
+			CRC32 checksum = new CRC32();
+			checksum.update(bytes.toByteArray());
+			out.writeInt((int)checksum.getValue());
+			out.flush();
+			
+			ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+			
+			Path directory = file.toAbsolutePath().getParent();
+			Path temporary = Files.createTempFile(directory, "checkpoint-", ".tmp");
+			
+			try {
+				try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)){
+					while(buffer.hasRemaining())
+						channel.write(buffer);
+					
+					channel.force(true);
+				}
+				
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temporary);
+			}
+		}
+		
+		/**
+		 * Reads a checkpoint written by write().
+		 * 
+		 * @param file Path of the checkpoint file
+		 * @return The checkpoint
+		 * @throws IOException If the file cannot be read or is not a valid checkpoint
+		 */
+		public static Checkpoint read(Path file) throws IOException {
+			byte[] bytes = Files.readAllBytes(file);
+			
+			if(bytes.length < 8 || ByteBuffer.wrap(bytes).getInt(0) != MAGIC)
+				throw new IOException("Not a checkpoint file: " + file);
+			
+			CRC32 checksum = new CRC32();
+			checksum.update(bytes, 0, bytes.length - 4);
+			
+			if(ByteBuffer.wrap(bytes).getInt(bytes.length - 4) != (int)checksum.getValue())
+				throw new IOException("Corrupted checkpoint file: " + file);
+			
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 4, bytes.length - 8));
+			Checkpoint checkpoint = new Checkpoint();
+			
+			checkpoint.T = in.readInt();
+			checkpoint.alpha = in.readDouble();
+			checkpoint.pendingIAT = in.readLong();
+			checkpoint.clock = in.readLong();
+			checkpoint.lastArrival = in.readLong();
+			checkpoint.lastGrant = in.readLong();
+			checkpoint.bufferCount = in.readLong();
+			checkpoint.grantCount = in.readLong();
+			checkpoint.arrivalCount = in.readLong();
+			checkpoint.accumulatedDelay = in.readDouble();
+			checkpoint.energy = in.readDouble();
+			checkpoint.latency = in.readDouble();
+			checkpoint.defaultCost = in.readDouble();
+			
+			if(checkpoint.bufferCount < 0 || checkpoint.bufferCount > (bytes.length - 8) / 8)
+				throw new IOException("Corrupted checkpoint file: " + file);
+			
+			checkpoint.bufferedArrivals = new long[(int)checkpoint.bufferCount];
+			
+			for(int k = 0; k < checkpoint.bufferCount; k++)
+				checkpoint.bufferedArrivals[k] = in.readLong();
+			
+			checkpoint.delays = Histogram.read(in);
+			checkpoint.gaps = Histogram.read(in);
+			
+			if(in.available() != 0)
+				throw new IOException("Corrupted checkpoint file: " + file);
+			
+			return checkpoint;
+		}
+	}
+}
@@ -0,0 +1,187 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class Sweep
+ * 
+ * Runs the break-even algorithm and the optimal offline
+ * solution over a grid of alpha and tail time values for
+ * a single inter-arrival time sequence. Every point of the
+ * grid gets its own Simulator and HullOffline objects, so
+ * the points are independent and are computed in parallel
+ * on a fork-join pool.
+ * 
+ * With a ReportCache, the reports of points that were
+ * computed before for the same sequence are taken from
+ * the cache, and only the other points are computed.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ *
+ */
+public class Sweep {
+
+	private int[] IAT;
+	private ForkJoinPool pool;
+	private ReportCache cache;
+	
+	/**
+	 * Constructor
+	 * 
+	 * Creates a sweep that runs on the common fork-join pool.
+	 * 
+	 * @param IAT Sequence of inter-arrival times
+	 */
+	public Sweep(int[] IAT)
+	{
+		this(IAT, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param IAT Sequence of inter-arrival times
+	 * @param pool Pool used for computing the points
+	 */
+	public Sweep(int[] IAT, ForkJoinPool pool)
+	{
+		this.IAT = IAT;
+		this.pool = pool;
+	}
+	
+	/**
+	 * Setter for the cache
+	 * 
+	 * @param cache Cache of the reports of the points, null for none
+	 */
+	public void setCache(ReportCache cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * Computes every combination of the given alpha
+	 * and tail time values.
+	 * 
+	 * @param alpha Weights given to delay
+	 * @param T Radio tail times
+	 * @return A table with one point per combination, alpha varying fastest
+	 */
+	public SweepResult run(double[] alpha, int[] T)
+	{
+		double[] pointAlpha = new double[alpha.length * T.length];
+		int[] pointT = new int[alpha.length * T.length];
+		
+		for (int j = 0; j < T.length; j++)
+		{
+			for (int i = 0; i < alpha.length; i++)
+			{
+				pointAlpha[j * alpha.length + i] = alpha[i];
+				pointT[j * alpha.length + i] = T[j];
+			}
+		}
+		
+		return runPoints(pointAlpha, pointT);
+	}
+	
+	/**
+	 * Computes the given points.
+	 * 
+	 * @param alpha alpha value of every point
+	 * @param T tail time of every point
+	 * @return A table with the reports of every point
+	 */
+	public SweepResult runPoints(double[] alpha, int[] T)
+	{
+		if(alpha.length != T.length)
+			throw new IllegalArgumentException("Expected one tail time per alpha value");
+		
+		SweepResult result = new SweepResult(alpha, T);
+		long fingerprint = (cache != null) ? ReportCache.fingerprint(IAT) : 0;
+		
+		pool.invoke(new PointTask(result, fingerprint, 0, alpha.length));
+		
+		return result;
+	}
+	
+	/**
+	 * Computes the reports of a single point.
+	 * 
+	 * @param result table the reports are stored in
+	 * @param fingerprint fingerprint of the sequence, if there is a cache
+	 * @param point index of the point
+	 */
+	private void compute(SweepResult result, long fingerprint, int point)
+	{
+		double alpha = result.getAlpha(point);
+		int T = result.getT(point);
+		
+		Report onlineReport = null;
+		Report offlineReport = null;
+		
+		if(cache != null){
+			onlineReport = cache.get(fingerprint, T, alpha, ReportCache.SIMULATOR);
+			offlineReport = cache.get(fingerprint, T, alpha, ReportCache.HULL_OFFLINE);
+		}
+		
+		if(onlineReport == null){
+			Simulator online = new Simulator(T, IAT, SimulationSink.NONE);
+			online.setAlpha(alpha);
+			online.initialize();
+			online.run();
+			onlineReport = online.getReport();
+			
+			if(cache != null)
+				cache.put(fingerprint, T, alpha, ReportCache.SIMULATOR, onlineReport);
+		}
+		
+		if(offlineReport == null){
+			HullOffline offline = new HullOffline(T, IAT);
+			offline.setAlpha(alpha);
+			offline.initialize();
+			offline.run();
+			offlineReport = offline.getReport();
+			
+			if(cache != null)
+				cache.put(fingerprint, T, alpha, ReportCache.HULL_OFFLINE, offlineReport);
+		}
+		
+		result.set(point, onlineReport, offlineReport);
+	}
+	
+	/**
+	 * Task that computes a range of points, splitting 
+	 * the range until a single point is left.
+	 */
+	private class PointTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private SweepResult result;
+		private long fingerprint;
+		private int from;
+		private int to;
+		
+		PointTask(SweepResult result, long fingerprint, int from, int to)
+		{
+			this.result = result;
+			this.fingerprint = fingerprint;
+			this.from = from;
+			this.to = to;
+		}
+		
+		protected void compute()
+		{
+			if(to - from <= 1){
+				if(to > from)
+					Sweep.this.compute(result, fingerprint, from);
+				
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new PointTask(result, fingerprint, from, middle),
+					new PointTask(result, fingerprint, middle, to));
+		}
+	}
+}
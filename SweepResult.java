@@ -0,0 +1,136 @@
+/**
+ * Class SweepResult
+ * 
+ * Holds the results of a parameter sweep. Every point of
+ * the sweep is a pair of alpha and tail time values, and
+ * has a report for the break-even algorithm and a report 
+ * for the optimal offline solution.
+ * 
+ * @author Ali Sehati
+ * @version 1.0
+ *
+ */
+public class SweepResult {
+
+	private double[] alpha;
+	private int[] T;
+	private Report[] online;
+	private Report[] offline;
+	
+	/**
+	 * Constructor
+	 * 
+	 * Creates an empty table for the given points. The
+	 * reports are filled in by the sweep.
+	 * 
+	 * @param alpha alpha value of every point
+	 * @param T tail time of every point
+	 */
+	public SweepResult(double[] alpha, int[] T)
+	{
+		this.alpha = alpha;
+		this.T = T;
+		this.online = new Report[alpha.length];
+		this.offline = new Report[alpha.length];
+	}
+	
+	/**
+	 * Stores the reports of a single point.
+	 * 
+	 * @param point index of the point
+	 * @param onlineReport report of the break-even algorithm
+	 * @param offlineReport report of the optimal solution
+	 */
+	void set(int point, Report onlineReport, Report offlineReport)
+	{
+		online[point] = onlineReport;
+		offline[point] = offlineReport;
+	}
+	
+	/**
+	 * Returns the number of points in the table
+	 * 
+	 * @return The number of points
+	 */
+	public int size()
+	{
+		return alpha.length;
+	}
+	
+	/**
+	 * Getter for alpha
+	 * 
+	 * @param point index of the point
+	 * @return The alpha value of the point
+	 */
+	public double getAlpha(int point)
+	{
+		return alpha[point];
+	}
+	
+	/**
+	 * Getter for T
+	 * 
+	 * @param point index of the point
+	 * @return The tail time of the point
+	 */
+	public int getT(int point)
+	{
+		return T[point];
+	}
+	
+	/**
+	 * Getter for the report of the break-even algorithm
+	 * 
+	 * @param point index of the point
+	 * @return The report of the break-even algorithm
+	 */
+	public Report getOnlineReport(int point)
+	{
+		return online[point];
+	}
+	
+	/**
+	 * Getter for the report of the optimal solution
+	 * 
+	 * @param point index of the point
+	 * @return The report of the optimal solution
+	 */
+	public Report getOfflineReport(int point)
+	{
+		return offline[point];
+	}
+	
+	/**
+	 * Returns the competitive ratio of the break-even
+	 * algorithm, which is its total cost divided by the
+	 * total cost of the optimal solution.
+	 * 
+	 * @param point index of the point
+	 * @return The competitive ratio of the point
+	 */
+	public double getCompetitiveRatio(int point)
+	{
+		return online[point].getTotalCost() / offline[point].getTotalCost();
+	}
+	
+	/**
+	 * Returns a string representation of the table, one 
+	 * line per point with tab-separated columns for
+	 * alpha, T, competitive ratio, optimal cost, latency,
+	 * energy, total cost, grant count and default cost.
+	 */
+	public String toString(){
+		StringBuilder output = new StringBuilder();
+		
+		for (int i = 0; i < alpha.length; i++)
+		{
+			output.append(alpha[i] + "\t" + T[i] + "\t" + getCompetitiveRatio(i) 
+					+ "\t" + offline[i].getTotalCost() + "\t" + online[i].getLatency() 
+					+ "\t" + online[i].getEnergy() + "\t" + online[i].getTotalCost() 
+					+ "\t" + online[i].getGrantCount() + "\t" + online[i].getDefaultCost() + "\n");
+		}
+		
+		return output.toString();
+	}
+}
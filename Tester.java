@@ -1,6 +1,6 @@
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
+import java.nio.file.Paths;
 
 
 /**
@@ -24,8 +24,13 @@ public class Tester {
 
 			double[] alpha = new double[]{0.0001, 0.001, 0.01, 0.1, 1, 10, 100, 1000, 10000, 100000};
 
-			Simulator sim_online = new Simulator(T, IAT);
-			Offline sim_offline = new Offline(T, IAT);
+			// every run logs into a directory of its own under logs/
+			SimulationSink sink = new TextSink(SimulationSink.runDirectory(Paths.get("logs")));
+			Simulator sim_online = new Simulator(T, IAT, sink);
+			
+			// the optimal cost for every alpha is looked up on its envelope
+			OfflineCurve opt_curve = new OfflineCurve(T, IAT);
+			opt_curve.run(alpha[0], alpha[alpha.length - 1]);
 
 			for (int i = 0; i < alpha.length; i++){
 				sim_online.setAlpha(alpha[i]);
@@ -34,9 +39,7 @@ public class Tester {
 				sim_online.run();
 				Report goa_report  = sim_online.getReport();
 
-				sim_offline.setAlpha(alpha[i]);
-				sim_offline.run();				
-				Report opt_report = sim_offline.getReport();
+				Report opt_report = opt_curve.getReport(alpha[i]);
 				
 				double CR = goa_report.getTotalCost()/opt_report.getTotalCost();
 				
@@ -50,9 +53,7 @@ public class Tester {
 			sim_online.closeLogFiles();
 			writer.close();
 
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
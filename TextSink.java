@@ -0,0 +1,147 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Class TextSink
+ *
+ * A simulation sink that writes the text log files of
+ * the simulator into a directory:
+ *
+ *   log_arrival.txt  one inter-arrival time per line
+ *   log_delay.txt    delays of the requests, one section per alpha
+ *   log_grant.txt    inter-grant times, one section per alpha
+ *
+ * Numbers are converted to text by hand into buffered
+ * writers instead of going through formatted output.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TextSink implements SimulationSink {
+
+	private static final String NEW_LINE = System.lineSeparator();
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private Writer arrivalWriter;
+	private Writer delayWriter;
+	private Writer grantWriter;
+
+	// scratch space for converting a number to text
+	private char[] digits = new char[20];
+
+	/**
+	 * Constructor
+	 *
+	 * Creates the log files in the given directory,
+	 * replacing any existing ones.
+	 *
+	 * @param directory Directory the log files are written to
+	 * @throws IOException If the files cannot be created
+	 */
+	public TextSink(Path directory) throws IOException {
+		Files.createDirectories(directory);
+
+		arrivalWriter = open(directory.resolve("log_arrival.txt"));
+		delayWriter = open(directory.resolve("log_delay.txt"));
+		grantWriter = open(directory.resolve("log_grant.txt"));
+	}
+
+	private static Writer open(Path file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file),
+				StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
+	public void arrivals(int[] IAT) {
+		try {
+			for(int i = 0; i < IAT.length; i++){
+				write(arrivalWriter, IAT[i]);
+				arrivalWriter.write(NEW_LINE);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void beginRun(double alpha) {
+		String header = "\n=========================================" + NEW_LINE + "Alpha = " + alpha + NEW_LINE;
+
+		try {
+			delayWriter.write(header);
+			grantWriter.write(header);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void delay(long delay) {
+		try {
+			write(delayWriter, delay);
+			delayWriter.write('\t');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void grant(long interGrant) {
+		try {
+			write(grantWriter, interGrant);
+			grantWriter.write('\t');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes a number in decimal.
+	 *
+	 * @param writer Writer the number is written to
+	 * @param value The number
+	 * @throws IOException If the number cannot be written
+	 */
+	private void write(Writer writer, long value) throws IOException {
+		if(value == Long.MIN_VALUE){
+			writer.write(Long.toString(value));
+			return;
+		}
+
+		boolean negative = value < 0;
+
+		if(negative)
+			value = -value;
+
+		int start = digits.length;
+
+		do {
+			digits[--start] = (char)('0' + (value % 10));
+			value /= 10;
+		} while(value != 0);
+
+		if(negative)
+			digits[--start] = '-';
+
+		writer.write(digits, start, digits.length - start);
+	}
+
+	/**
+	 * Flushes and closes the log files.
+	 *
+	 * @throws IOException If the files cannot be written
+	 */
+	public void close() throws IOException {
+		try {
+			arrivalWriter.close();
+		} finally {
+			try {
+				delayWriter.close();
+			} finally {
+				grantWriter.close();
+			}
+		}
+	}
+}
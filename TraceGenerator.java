@@ -0,0 +1,359 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Class TraceGenerator
+ *
+ * Generates random sequences of inter-arrival times in
+ * parallel. The sequence is cut into chunks of CHUNK_SIZE
+ * values, and every chunk is drawn from a SplittableRandom
+ * whose seed is derived from the generator seed and the
+ * index of the chunk only. Chunks can therefore be filled
+ * by any number of threads in any order, and the sequence
+ * only depends on the seed and the distribution. A shorter
+ * sequence is always a prefix of a longer one.
+ *
+ * Since chunks are independent, a stateful pattern cannot
+ * carry its state from one chunk to the next. The bursty
+ * pattern enters every chunk at a random point of a cycle,
+ * drawn as in a long run of the pattern, so chunk boundaries
+ * do not favour long gaps or cut bursts. Only the cycle that
+ * spans a boundary is drawn as two independent parts.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TraceGenerator {
+
+	public static final int CHUNK_SIZE = 1 << 16;
+
+	// chunks generated at once when the sequence does not fit in an array
+	private static final int BATCH_CHUNKS = 64;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long seed;
+	private ForkJoinPool pool;
+
+	/**
+	 * Distribution of the inter-arrival times of a chunk
+	 */
+	public interface Distribution {
+
+		/**
+		 * Fills a range of an array with inter-arrival times.
+		 *
+		 * @param random Random numbers of the chunk
+		 * @param IAT Array that is filled
+		 * @param from Index of the first value of the chunk
+		 * @param to Index after the last value of the chunk
+		 */
+		void fill(SplittableRandom random, int[] IAT, int from, int to);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed Seed of the sequence
+	 * @param pool Pool the chunks are generated on
+	 */
+	public TraceGenerator(long seed, ForkJoinPool pool) {
+		this.seed = seed;
+		this.pool = pool;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Generates the chunks on the common pool.
+	 *
+	 * @param seed Seed of the sequence
+	 */
+	public TraceGenerator(long seed) {
+		this(seed, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Normal inter-arrival times with mean mu and standard
+	 * deviation sigma. Negative samples are mirrored, as in
+	 * RandomIAT.generateNormalIAT().
+	 *
+	 * @param mu Mean value of the normal distribution
+	 * @param sigma Standard deviation of the normal distribution
+	 * @return The distribution
+	 */
+	public static Distribution normal(double mu, double sigma) {
+		return (random, IAT, from, to) -> {
+			for(int i = from; i < to; i++)
+				IAT[i] = (int)Math.abs(mu + (random.nextGaussian() * sigma));
+		};
+	}
+
+	/**
+	 * Log-normal inter-arrival times with the given mean and
+	 * standard deviation, as in RandomIAT.generateLogNormalIAT().
+	 *
+	 * @param mean Mean of the distribution
+	 * @param std Standard deviation of the distribution
+	 * @return The distribution
+	 */
+	public static Distribution logNormal(double mean, double std) {
+		double varx = std * std;
+		double m2 = mean * mean;
+
+		double mu = Math.log((m2)/(Math.sqrt(varx + m2)));
+		double sigma = Math.sqrt(Math.log(1 + (varx/m2)));
+
+		return (random, IAT, from, to) -> {
+			for(int i = from; i < to; i++)
+				IAT[i] = (int)Math.exp(mu + (random.nextGaussian() * sigma));
+		};
+	}
+
+	/**
+	 * Exponential inter-arrival times, which make the
+	 * arrivals a Poisson process.
+	 *
+	 * @param mean Mean of the distribution
+	 * @return The distribution
+	 */
+	public static Distribution exponential(double mean) {
+		return (random, IAT, from, to) -> {
+			for(int i = from; i < to; i++)
+				IAT[i] = (int)(mean * random.nextExponential());
+		};
+	}
+
+	/**
+	 * Inter-arrival times that are all equal.
+	 *
+	 * @param interval Value of each interval
+	 * @return The distribution
+	 */
+	public static Distribution constant(int interval) {
+		return (random, IAT, from, to) -> Arrays.fill(IAT, from, to, interval);
+	}
+
+	/**
+	 * The bursty pattern of RandomIAT.generateBurstyIAT(): a
+	 * long gap, a burst of arrivals one time unit apart, and
+	 * a short gap, repeated. Gaps are exponentially distributed
+	 * and the burst size is uniformly distributed.
+	 *
+	 * A chunk starts inside the cycle in progress rather than
+	 * at a long gap. Longer cycles cover more values, so the
+	 * burst size of that cycle is drawn with a weight of its
+	 * cycle length, and the position within it uniformly.
+	 *
+	 * @param maxBatchSize Largest number of arrivals in a burst
+	 * @param meanShortGap Mean of the short gaps
+	 * @param meanLongGap Mean of the long gaps
+	 * @return The distribution
+	 */
+	public static Distribution bursty(int maxBatchSize, double meanShortGap, double meanLongGap) {
+		if(maxBatchSize < 1)
+			throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+
+		// total length of the cycles of every burst size
+		int cycleWeight = (maxBatchSize * (maxBatchSize + 1) / 2) + (2 * maxBatchSize);
+
+		return (random, IAT, from, to) -> {
+			int i = from;
+
+			// cycle in progress at the start of the chunk, position 0 is its long gap
+			int burstSize = 1;
+
+			for(int r = random.nextInt(cycleWeight); r >= burstSize + 2; burstSize++)
+				r -= burstSize + 2;
+
+			int position = random.nextInt(burstSize + 2);
+
+			while(i < to){
+				if(position == 0)
+					IAT[i++] = (int)(meanLongGap * random.nextExponential());
+
+				for(int k = Math.max(position, 1); k <= burstSize && i < to; k++)
+					IAT[i++] = 1;
+
+				if(i < to)
+					IAT[i++] = (int)(meanShortGap * random.nextExponential());
+
+				burstSize = random.nextInt(1, maxBatchSize + 1);
+				position = 0;
+			}
+		};
+	}
+
+	/**
+	 * The bursty pattern with the parameters of RandomIAT.
+	 *
+	 * @return The distribution
+	 */
+	public static Distribution bursty() {
+		return bursty(RandomIAT.MAX_BATCH_SIZE, RandomIAT.MEAN_SHORT_GAP_TIME, RandomIAT.MEAN_LONG_GAP_TIME);
+	}
+
+	/**
+	 * Generates a sequence of inter-arrival times.
+	 *
+	 * @param length Size of the sequence
+	 * @param distribution Distribution of the inter-arrival times
+	 * @return Array containing the inter-arrival times
+	 */
+	public int[] generate(int length, Distribution distribution) {
+		int[] IAT = new int[length];
+		fill(IAT, length, 0, distribution);
+
+		return IAT;
+	}
+
+	/**
+	 * Returns a sequence of inter-arrival times that is
+	 * generated while it is read, a batch of chunks at a
+	 * time, so its length is not limited by the heap.
+	 *
+	 * @param length Size of the sequence
+	 * @param distribution Distribution of the inter-arrival times
+	 * @return The sequence as an arrival source
+	 */
+	public ArrivalSource stream(long length, Distribution distribution) {
+		return new ArrivalSource() {
+			private int[] batch = new int[(int)Math.min(length, (long)BATCH_CHUNKS * CHUNK_SIZE)];
+			private long nextChunk;
+			private int position;
+			private int filled;
+			private long read;
+
+			public boolean hasNext() {
+				return read < length;
+			}
+
+			public long next() {
+				if(read == length)
+					throw new NoSuchElementException();
+
+				if(position == filled){
+					filled = (int)Math.min(batch.length, length - read);
+					fill(batch, filled, nextChunk, distribution);
+					nextChunk += BATCH_CHUNKS;
+					position = 0;
+				}
+
+				read++;
+
+				return batch[position++];
+			}
+		};
+	}
+
+	/**
+	 * Writes a sequence of inter-arrival times to a trace
+	 * file. Batches of chunks are generated in parallel and
+	 * written in order.
+	 *
+	 * @param file Path of the trace file
+	 * @param length Size of the sequence
+	 * @param distribution Distribution of the inter-arrival times
+	 * @param encoding TraceWriter.FIXED or TraceWriter.VARINT
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(Path file, long length, Distribution distribution, short encoding) throws IOException {
+		int[] batch = new int[(int)Math.min(length, (long)BATCH_CHUNKS * CHUNK_SIZE)];
+		TraceWriter writer = new TraceWriter(file, encoding, TraceWriter.DEFAULT_BLOCK_SIZE);
+
+		try {
+			long chunk = 0;
+
+			for(long written = 0; written < length; written += batch.length){
+				int filled = (int)Math.min(batch.length, length - written);
+				fill(batch, filled, chunk, distribution);
+				chunk += BATCH_CHUNKS;
+
+				for(int i = 0; i < filled; i++)
+					writer.write(batch[i]);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Fills the beginning of an array with consecutive chunks
+	 * of the sequence, in parallel.
+	 *
+	 * @param IAT Array that is filled
+	 * @param length Number of values to fill
+	 * @param firstChunk Index of the chunk that starts at IAT[0]
+	 * @param distribution Distribution of the inter-arrival times
+	 */
+	private void fill(int[] IAT, int length, long firstChunk, Distribution distribution) {
+		int chunks = (int)(((long)length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+
+		pool.invoke(new ChunkTask(IAT, length, firstChunk, distribution, 0, chunks));
+	}
+
+	/**
+	 * Derives the seed of a chunk from the generator seed,
+	 * using the finalizer of SplitMix64.
+	 *
+	 * @param chunk Index of the chunk
+	 * @return Seed of the chunk
+	 */
+	private long chunkSeed(long chunk) {
+		long z = seed + ((chunk + 1) * GOLDEN_GAMMA);
+
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Task that fills a range of chunks, splitting the
+	 * range until a single chunk is left.
+	 */
+	private class ChunkTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int[] IAT;
+		private int length;
+		private long firstChunk;
+		private Distribution distribution;
+		private int from;
+		private int to;
+
+		ChunkTask(int[] IAT, int length, long firstChunk, Distribution distribution, int from, int to)
+		{
+			this.IAT = IAT;
+			this.length = length;
+			this.firstChunk = firstChunk;
+			this.distribution = distribution;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if(to - from > 1){
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(IAT, length, firstChunk, distribution, from, middle),
+						new ChunkTask(IAT, length, firstChunk, distribution, middle, to));
+				return;
+			}
+
+			for(int c = from; c < to; c++){
+				int start = c * CHUNK_SIZE;
+				int end = (int)Math.min(length, (long)start + CHUNK_SIZE);
+
+				distribution.fill(new SplittableRandom(chunkSeed(firstChunk + c)), IAT, start, end);
+			}
+		}
+	}
+}
@@ -0,0 +1,843 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class TraceImporter
+ *
+ * Converts device logs of request timestamps into binary
+ * trace files of inter-arrival times, one per device or
+ * application id. The log is a delimited text file with
+ * one request per line. One column holds the id and another
+ * one holds an integer timestamp in the time unit of the
+ * simulator. Lines without a numeric timestamp, such as a
+ * header line, or with one too large for a long, are
+ * skipped. Digits after a decimal point are ignored, and
+ * quotes around the id are dropped.
+ *
+ * The log is memory-mapped and cut into chunks at line
+ * boundaries, and the chunks are parsed in parallel. The
+ * parser works on bytes and does not allocate per line,
+ * only when a chunk sees a new id or its buffers grow.
+ * Every chunk sorts the timestamps of each of its ids and
+ * spills them as a run to a temporary file, so only the
+ * chunks being parsed are held in memory. The ids are
+ * partitioned into buckets by a hash, and a spill file holds
+ * the runs of one bucket after another, each bucket after a
+ * header with its ids. The buckets are merged one at a time,
+ * so only the runs of the buckets being merged are held in
+ * memory. The runs of every id are merged from the disk and
+ * turned into inter-arrival times as the trace is written.
+ * The first request of every id is placed one time unit
+ * after the start of its trace, since the simulators treat
+ * time 0 as "no arrival yet". An inter-arrival time too large
+ * for a trace is clamped to Integer.MAX_VALUE, which is still
+ * an idle period far beyond any tail time, and counted.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TraceImporter {
+
+	// largest chunk of the log that is parsed at once, which bounds the memory of a parser
+	private static final long MAX_CHUNK_SIZE = 1L << 26;
+
+	// size of the buffer a run is written or read through
+	private static final int RUN_BUFFER_SIZE = 8192;
+
+	// the ids are partitioned into 2^BUCKET_BITS buckets by the top bits of their hash
+	private static final int BUCKET_BITS = 8;
+	private static final int BUCKET_COUNT = 1 << BUCKET_BITS;
+
+	private int idColumn;
+	private int timeColumn;
+	private byte delimiter;
+	private int threads;
+	private short encoding = TraceWriter.VARINT;
+
+	private long skippedLines;
+	private long clampedGaps;
+
+	/**
+	 * Constructor
+	 *
+	 * @param idColumn Index of the id column, starting at 0
+	 * @param timeColumn Index of the timestamp column, starting at 0
+	 * @param delimiter Character separating the columns
+	 * @param threads Number of chunks parsed in parallel
+	 */
+	public TraceImporter(int idColumn, int timeColumn, char delimiter, int threads) {
+		if(idColumn < 0 || timeColumn < 0 || idColumn == timeColumn)
+			throw new IllegalArgumentException("Invalid columns: " + idColumn + ", " + timeColumn);
+
+		this.idColumn = idColumn;
+		this.timeColumn = timeColumn;
+		this.delimiter = (byte)delimiter;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Reads comma-separated lines of id and timestamp using
+	 * one thread per available processor.
+	 */
+	public TraceImporter() {
+		this(0, 1, ',', Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Setter for the encoding of the written traces
+	 *
+	 * @param encoding TraceWriter.FIXED or TraceWriter.VARINT
+	 */
+	public void setEncoding(short encoding) {
+		this.encoding = encoding;
+	}
+
+	/**
+	 * Returns the number of lines skipped by the last import
+	 * because they had no numeric timestamp, or one that
+	 * does not fit in a long.
+	 *
+	 * @return The number of skipped lines
+	 */
+	public long getSkippedLines() {
+		return skippedLines;
+	}
+
+	/**
+	 * Returns the number of inter-arrival times of the last
+	 * import that were larger than Integer.MAX_VALUE and were
+	 * clamped to it.
+	 *
+	 * @return The number of clamped inter-arrival times
+	 */
+	public long getClampedGaps() {
+		return clampedGaps;
+	}
+
+	/**
+	 * Imports a log file, writing one trace file per id into
+	 * the output directory. The file name is the id, with
+	 * characters other than letters, digits, '.', '-' and '_'
+	 * replaced by '_', and the extension ".iat".
+	 *
+	 * @param log Path of the log file
+	 * @param outputDir Directory the trace files are written to
+	 * @return The paths of the written traces, by id
+	 * @throws IOException If the log cannot be read or a trace cannot be written
+	 */
+	public Map<String, Path> importLog(Path log, Path outputDir) throws IOException {
+		Files.createDirectories(outputDir);
+
+		Path spillDir = Files.createTempDirectory(outputDir, ".import-");
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		ArrayList<FileChannel> spills = new ArrayList<FileChannel>();
+
+		try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+			long[] bounds = chunkBounds(channel);
+
+			ArrayList<Future<Spill>> parsed = new ArrayList<Future<Spill>>();
+
+			for(int i = 0; i + 1 < bounds.length; i++){
+				final long start = bounds[i], end = bounds[i + 1];
+				final Path file = spillDir.resolve(i + ".runs");
+
+				parsed.add(executor.submit(() -> spill(parse(channel, start, end), file)));
+			}
+
+			ArrayList<Spill> chunks = new ArrayList<Spill>();
+			skippedLines = 0;
+			clampedGaps = 0;
+
+			for(Future<Spill> future : parsed){
+				Spill spill = get(future);
+				skippedLines += spill.skipped;
+
+				spill.channel = FileChannel.open(spill.file, StandardOpenOption.READ);
+				spills.add(spill.channel);
+				chunks.add(spill);
+			}
+
+			LinkedHashMap<String, Path> traces = new LinkedHashMap<String, Path>();
+			HashSet<String> names = new HashSet<String>();
+			ArrayList<Future<Long>> written = new ArrayList<Future<Long>>();
+
+			for(int b = 0; b < BUCKET_COUNT; b++){
+				LinkedHashMap<String, ArrayList<Run>> runs = runs(chunks, b);
+
+				// the bucket before is written while this one was read, and released
+				clampedGaps += sum(written);
+				written.clear();
+
+				for(Map.Entry<String, ArrayList<Run>> entry : runs.entrySet()){
+					String name = fileName(entry.getKey());
+
+					for(int k = 1; !names.add(name); k++)
+						name = fileName(entry.getKey()) + "-" + k;
+
+					final Path trace = outputDir.resolve(name + ".iat");
+					final ArrayList<Run> parts = entry.getValue();
+					traces.put(entry.getKey(), trace);
+
+					written.add(executor.submit(() -> writeTrace(trace, parts)));
+				}
+			}
+
+			clampedGaps += sum(written);
+
+			return traces;
+		} finally {
+			cleanUp(executor, spills, spillDir);
+		}
+	}
+
+	/**
+	 * Stops the tasks of an import and deletes its spill
+	 * files. A spill file that cannot be deleted is left
+	 * behind rather than hiding the result of the import.
+	 *
+	 * @param executor Executor of the parse and write tasks
+	 * @param spills Open spill files
+	 * @param spillDir Directory of the spill files
+	 */
+	private static void cleanUp(ExecutorService executor, ArrayList<FileChannel> spills, Path spillDir) {
+		executor.shutdownNow();
+
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		try {
+			for(FileChannel file : spills)
+				file.close();
+
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(spillDir)) {
+				for(Path file : files)
+					Files.deleteIfExists(file);
+			}
+
+			Files.deleteIfExists(spillDir);
+		} catch (IOException e) {
+			// left behind
+		}
+	}
+
+	/**
+	 * Cuts the log into chunks that end right after a
+	 * line break.
+	 *
+	 * @param channel Channel of the log file
+	 * @return Offsets of the chunk boundaries, including 0 and the file size
+	 * @throws IOException If the log cannot be read
+	 */
+	private long[] chunkBounds(FileChannel channel) throws IOException {
+		long size = channel.size();
+		long chunks = Math.max(threads, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+		long chunkSize = Math.max(1, (size + chunks - 1) / chunks);
+
+		ArrayList<Long> bounds = new ArrayList<Long>();
+		bounds.add(0L);
+
+		long offset = chunkSize;
+
+		while(offset < size){
+			offset = lineEnd(channel, offset, size);
+
+			if(offset < size)
+				bounds.add(offset);
+
+			offset += chunkSize;
+		}
+
+		bounds.add(size);
+
+		long[] result = new long[bounds.size()];
+
+		for(int i = 0; i < result.length; i++)
+			result[i] = bounds.get(i);
+
+		return result;
+	}
+
+	/**
+	 * Finds the offset right after the next line break.
+	 *
+	 * @param channel Channel of the log file
+	 * @param offset Offset to start searching at
+	 * @param size Size of the log file
+	 * @return Offset of the first byte of the next line, or size
+	 * @throws IOException If the log cannot be read
+	 */
+	private long lineEnd(FileChannel channel, long offset, long size) throws IOException {
+		while(offset < size){
+			long length = Math.min(65536, size - offset);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+			for(int i = 0; i < length; i++){
+				if(buffer.get(i) == '\n')
+					return offset + i + 1;
+			}
+
+			offset += length;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Parses one chunk of the log.
+	 *
+	 * @param channel Channel of the log file
+	 * @param start Offset of the first byte of the chunk
+	 * @param end Offset after the last byte of the chunk
+	 * @return The timestamps of every id in the chunk
+	 * @throws IOException If the log cannot be read
+	 */
+	private Chunk parse(FileChannel channel, long start, long end) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		Chunk chunk = new Chunk();
+		int length = (int)(end - start);
+		int i = 0;
+
+		while(i < length){
+			int column = 0;
+			int idStart = -1, idEnd = -1;
+			long time = 0;
+			boolean digits = false, fraction = false, valid = true;
+			int fieldStart = i;
+
+			// walk one line, splitting it at the delimiter
+			for(; i < length; i++){
+				byte b = buffer.get(i);
+
+				if(b == '\n')
+					break;
+
+				if(b == delimiter){
+					if(column == idColumn){
+						idStart = fieldStart;
+						idEnd = i;
+					}
+
+					column++;
+					fieldStart = i + 1;
+					continue;
+				}
+
+				if(column == timeColumn && !fraction){
+					if(b >= '0' && b <= '9'){
+						if(time > (Long.MAX_VALUE - (b - '0')) / 10)
+							valid = false;
+
+						time = (time * 10) + (b - '0');
+						digits = true;
+					} else if(b == '.'){
+						fraction = true;
+					} else if(b != ' ' && b != '\r' && b != '"'){
+						valid = false;
+					}
+				}
+			}
+
+			if(column == idColumn){
+				idStart = fieldStart;
+				idEnd = i;
+			}
+
+			// skip the line break
+			i++;
+
+			// drop a carriage return at the end of the id
+			if(idEnd > idStart && buffer.get(idEnd - 1) == '\r')
+				idEnd--;
+
+			// blank lines are not counted
+			if(idStart < 0 || !digits || !valid || column < timeColumn){
+				if(idEnd > idStart || column > 0)
+					chunk.skipped++;
+
+				continue;
+			}
+
+			// drop the quotes around the id
+			if(idEnd - idStart >= 2 && buffer.get(idStart) == '"' && buffer.get(idEnd - 1) == '"'){
+				idStart++;
+				idEnd--;
+			}
+
+			chunk.add(buffer, idStart, idEnd, time);
+		}
+
+		return chunk;
+	}
+
+	/**
+	 * Sorts the timestamps of every id of a chunk and writes
+	 * them to a spill file, bucket by bucket. A bucket is a
+	 * header with the length, bytes and number of timestamps
+	 * of each of its ids, followed by their runs, one after
+	 * another.
+	 *
+	 * @param chunk The parsed chunk
+	 * @param file Path of the spill file
+	 * @return The positions of the buckets in the spill file
+	 * @throws IOException If the spill file cannot be written
+	 */
+	private Spill spill(Chunk chunk, Path file) throws IOException {
+		Spill spill = new Spill(file, chunk.skipped);
+		ByteBuffer buffer = ByteBuffer.allocate(RUN_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		long offset = 0;
+
+		// devices by bucket, in the order they were seen within a bucket
+		int[] first = new int[BUCKET_COUNT + 1];
+		int[] order = new int[chunk.devices];
+
+		for(int d = 0; d < chunk.devices; d++)
+			first[bucket(chunk.hashes[d]) + 1]++;
+
+		for(int b = 0; b < BUCKET_COUNT; b++)
+			first[b + 1] += first[b];
+
+		int[] next = Arrays.copyOf(first, BUCKET_COUNT);
+
+		for(int d = 0; d < chunk.devices; d++)
+			order[next[bucket(chunk.hashes[d])]++] = d;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			for(int b = 0; b < BUCKET_COUNT; b++){
+				if(first[b] == first[b + 1])
+					continue;
+
+				int headerLength = 0;
+
+				for(int k = first[b]; k < first[b + 1]; k++)
+					headerLength += 2 * Integer.BYTES + chunk.ids[order[k]].length;
+
+				ByteBuffer header = ByteBuffer.allocate(headerLength).order(ByteOrder.LITTLE_ENDIAN);
+
+				for(int k = first[b]; k < first[b + 1]; k++){
+					int d = order[k];
+
+					header.putInt(chunk.ids[d].length);
+					header.put(chunk.ids[d]);
+					header.putInt(chunk.counts[d]);
+				}
+
+				flush(channel, buffer);
+				flush(channel, header);
+
+				spill.headerOffsets[b] = offset;
+				spill.headerLengths[b] = headerLength;
+				offset += headerLength;
+
+				for(int k = first[b]; k < first[b + 1]; k++){
+					int d = order[k];
+					long[] times = chunk.times[d];
+					int count = chunk.counts[d];
+
+					Arrays.sort(times, 0, count);
+
+					for(int t = 0; t < count; t++){
+						if(!buffer.hasRemaining())
+							flush(channel, buffer);
+
+						buffer.putLong(times[t]);
+					}
+
+					offset += (long)count * Long.BYTES;
+				}
+			}
+
+			flush(channel, buffer);
+		}
+
+		return spill;
+	}
+
+	/**
+	 * Reads the headers of one bucket from the spill files
+	 * and finds the runs of its ids.
+	 *
+	 * @param chunks The spill files of the chunks, in order
+	 * @param b The bucket
+	 * @return The runs of every id of the bucket, in the order of the chunks
+	 * @throws IOException If a spill file cannot be read
+	 */
+	private static LinkedHashMap<String, ArrayList<Run>> runs(ArrayList<Spill> chunks, int b) throws IOException {
+		LinkedHashMap<String, ArrayList<Run>> runs = new LinkedHashMap<String, ArrayList<Run>>();
+
+		for(Spill spill : chunks){
+			if(spill.headerLengths[b] == 0)
+				continue;
+
+			ByteBuffer header = ByteBuffer.allocate(spill.headerLengths[b]).order(ByteOrder.LITTLE_ENDIAN);
+			long position = spill.headerOffsets[b];
+
+			while(header.hasRemaining()){
+				int read = spill.channel.read(header, position);
+
+				if(read < 0)
+					throw new EOFException("Spill file truncated");
+
+				position += read;
+			}
+
+			header.flip();
+
+			while(header.hasRemaining()){
+				byte[] id = new byte[header.getInt()];
+				header.get(id);
+				int count = header.getInt();
+
+				runs.computeIfAbsent(new String(id, StandardCharsets.UTF_8), k -> new ArrayList<Run>())
+						.add(new Run(spill.channel, position, count));
+
+				position += (long)count * Long.BYTES;
+			}
+		}
+
+		return runs;
+	}
+
+	private static int bucket(long hash) {
+		return (int)(hash >>> (Long.SIZE - BUCKET_BITS));
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	/**
+	 * Merges the sorted runs of one id and writes them as a
+	 * trace.
+	 *
+	 * @param trace Path of the trace file
+	 * @param runs Sorted timestamps of the id, one run per chunk
+	 * @return The number of inter-arrival times that were clamped
+	 * @throws IOException If a run cannot be read or the trace cannot be written
+	 */
+	private long writeTrace(Path trace, ArrayList<Run> runs) throws IOException {
+		PriorityQueue<Run> queue = new PriorityQueue<Run>(runs.size(), (a, b) -> Long.compare(a.current, b.current));
+
+		for(Run run : runs)
+			if(run.next())
+				queue.add(run);
+
+		TraceWriter writer = new TraceWriter(trace, encoding, TraceWriter.DEFAULT_BLOCK_SIZE);
+		long clamped = 0;
+
+		try {
+			Run run = queue.poll();
+			long previous = run.current;
+
+			writer.write(1);
+
+			while(true){
+				if(run.next())
+					queue.add(run);
+
+				if(queue.isEmpty())
+					break;
+
+				run = queue.poll();
+				long iat = run.current - previous;
+
+				if(iat > Integer.MAX_VALUE){
+					iat = Integer.MAX_VALUE;
+					clamped++;
+				}
+
+				writer.write((int)iat);
+				previous = run.current;
+			}
+		} finally {
+			writer.close();
+		}
+
+		return clamped;
+	}
+
+	/**
+	 * The spill file of a parsed chunk and the positions of
+	 * the headers of its buckets, an empty bucket having no
+	 * header.
+	 */
+	private static class Spill {
+		final Path file;
+		final long[] headerOffsets = new long[BUCKET_COUNT];
+		final int[] headerLengths = new int[BUCKET_COUNT];
+		final long skipped;
+
+		// opened for reading once the chunk is spilled
+		FileChannel channel;
+
+		Spill(Path file, long skipped) {
+			this.file = file;
+			this.skipped = skipped;
+		}
+	}
+
+	/**
+	 * Sorted timestamps of one id in a spill file, read
+	 * through a small buffer while the runs of the id are
+	 * merged. The buffer is allocated on the first read and
+	 * dropped when the run is exhausted.
+	 */
+	private static class Run {
+		private final FileChannel file;
+		private long position;
+		private long remaining;
+		private ByteBuffer buffer;
+
+		// timestamp returned by the last call to next()
+		long current;
+
+		Run(FileChannel file, long offset, int count) {
+			this.file = file;
+			this.position = offset;
+			this.remaining = count;
+		}
+
+		/**
+		 * Moves to the next timestamp of the run.
+		 *
+		 * @return false if the run is exhausted
+		 * @throws IOException If the spill file cannot be read
+		 */
+		boolean next() throws IOException {
+			if(remaining == 0){
+				buffer = null;
+				return false;
+			}
+
+			if(buffer == null)
+				buffer = ByteBuffer.allocate(RUN_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN).limit(0);
+
+			if(!buffer.hasRemaining()){
+				buffer.clear();
+				buffer.limit((int)Math.min(buffer.capacity(), remaining * Long.BYTES));
+
+				while(buffer.hasRemaining()){
+					int read = file.read(buffer, position);
+
+					if(read < 0)
+						throw new EOFException("Spill file truncated");
+
+					position += read;
+				}
+
+				buffer.flip();
+			}
+
+			current = buffer.getLong();
+			remaining--;
+			return true;
+		}
+	}
+
+	/**
+	 * Turns an id into a safe file name.
+	 *
+	 * @param id Device or application id
+	 * @return The file name without extension
+	 */
+	private static String fileName(String id) {
+		StringBuilder name = new StringBuilder();
+
+		for(int i = 0; i < id.length(); i++){
+			char c = id.charAt(i);
+			boolean safe = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+					|| c == '.' || c == '-' || c == '_';
+
+			name.append(safe ? c : '_');
+		}
+
+		if(name.length() == 0 || name.charAt(0) == '.')
+			name.insert(0, '_');
+
+		return name.toString();
+	}
+
+	/**
+	 * Waits for the tasks writing the traces of a bucket.
+	 *
+	 * @param written The tasks
+	 * @return The number of inter-arrival times they clamped
+	 * @throws IOException If a task failed
+	 */
+	private static long sum(ArrayList<Future<Long>> written) throws IOException {
+		long clamped = 0;
+
+		for(Future<Long> future : written)
+			clamped += get(future);
+
+		return clamped;
+	}
+
+	/**
+	 * Waits for a task, rethrowing its failure.
+	 *
+	 * @param future The task
+	 * @return The result of the task
+	 * @throws IOException If the task failed
+	 */
+	private static <V> V get(Future<V> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Import interrupted", e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException)
+				throw (IOException)e.getCause();
+
+			throw new IOException("Import failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Timestamps of every id seen in one chunk. Ids are
+	 * found through an open-addressing table keyed by a
+	 * hash of the id bytes, and compared byte by byte, so
+	 * no object is created for an id that was seen before.
+	 */
+	private static class Chunk {
+		private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+		private static final long FNV_PRIME = 0x100000001b3L;
+
+		int devices;
+		byte[][] ids = new byte[16][];
+		long[] hashes = new long[16];
+		long[][] times = new long[16][];
+		int[] counts = new int[16];
+		long skipped;
+
+		// open-addressing table from id hash to device
+		private long[] tableHash = new long[64];
+		private int[] tableDevice = new int[64];
+
+		Chunk() {
+			Arrays.fill(tableDevice, -1);
+		}
+
+		void add(MappedByteBuffer buffer, int idStart, int idEnd, long time) {
+			long hash = FNV_OFFSET;
+
+			for(int i = idStart; i < idEnd; i++)
+				hash = (hash ^ (buffer.get(i) & 0xFF)) * FNV_PRIME;
+
+			int mask = tableHash.length - 1;
+			int slot = (int)(hash ^ (hash >>> 32)) & mask;
+
+			while(tableDevice[slot] >= 0){
+				int d = tableDevice[slot];
+
+				if(tableHash[slot] == hash && sameId(ids[d], buffer, idStart, idEnd)){
+					append(d, time);
+					return;
+				}
+
+				slot = (slot + 1) & mask;
+			}
+
+			int d = newDevice(buffer, idStart, idEnd, hash);
+			tableHash[slot] = hash;
+			tableDevice[slot] = d;
+			append(d, time);
+
+			if(2 * devices > tableHash.length)
+				rehash();
+		}
+
+		private boolean sameId(byte[] id, MappedByteBuffer buffer, int idStart, int idEnd) {
+			if(id.length != idEnd - idStart)
+				return false;
+
+			for(int i = 0; i < id.length; i++){
+				if(id[i] != buffer.get(idStart + i))
+					return false;
+			}
+
+			return true;
+		}
+
+		private int newDevice(MappedByteBuffer buffer, int idStart, int idEnd, long hash) {
+			if(devices == ids.length){
+				ids = Arrays.copyOf(ids, 2 * devices);
+				hashes = Arrays.copyOf(hashes, 2 * devices);
+				times = Arrays.copyOf(times, 2 * devices);
+				counts = Arrays.copyOf(counts, 2 * devices);
+			}
+
+			byte[] id = new byte[idEnd - idStart];
+
+			for(int i = 0; i < id.length; i++)
+				id[i] = buffer.get(idStart + i);
+
+			ids[devices] = id;
+			hashes[devices] = hash;
+			times[devices] = new long[16];
+
+			return devices++;
+		}
+
+		private void append(int d, long time) {
+			if(counts[d] == times[d].length)
+				times[d] = Arrays.copyOf(times[d], 2 * counts[d]);
+
+			times[d][counts[d]++] = time;
+		}
+
+		private void rehash() {
+			long[] oldHash = tableHash;
+			int[] oldDevice = tableDevice;
+
+			tableHash = new long[2 * oldHash.length];
+			tableDevice = new int[2 * oldHash.length];
+			Arrays.fill(tableDevice, -1);
+
+			int mask = tableHash.length - 1;
+
+			for(int i = 0; i < oldHash.length; i++){
+				if(oldDevice[i] < 0)
+					continue;
+
+				int slot = (int)(oldHash[i] ^ (oldHash[i] >>> 32)) & mask;
+
+				while(tableDevice[slot] >= 0)
+					slot = (slot + 1) & mask;
+
+				tableHash[slot] = oldHash[i];
+				tableDevice[slot] = oldDevice[i];
+			}
+		}
+	}
+}
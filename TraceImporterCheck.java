@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Class TraceImporterCheck
+ *
+ * Regression check of TraceImporter. Logs are written to a
+ * temporary directory together with the traces expected from
+ * them, imported with a range of thread counts, and every
+ * trace is read back and compared with the expected one. The
+ * small logs cover quoted ids and timestamps, CRLF line ends,
+ * header lines, timestamps too large for a long, fractions,
+ * ids that map to the same file name and inter-arrival times
+ * too large for a trace. A large random log is cut into a
+ * different set of chunks for every thread count, and the
+ * traces, their file names and the number of skipped lines
+ * must not depend on it. Every mismatch is printed, and the
+ * exit status is 1 if there was any.
+ *
+ * Run with: java TraceImporterCheck
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TraceImporterCheck {
+
+	private static final long SEED = 12;
+
+	private static final int[] THREADS = {1, 2, 3, 7, 16};
+
+	private static int checks;
+	private static int failures;
+
+	public static void main(String[] args) throws IOException {
+		Path directory = Files.createTempDirectory("trace-import-check");
+
+		try {
+			checkLog(directory, "quotes", quotes());
+			checkLog(directory, "crlf", crlf());
+			checkLog(directory, "headers", headers());
+			checkLog(directory, "overflow", overflow());
+			checkLog(directory, "names", names());
+			checkLog(directory, "random", random(new Random(SEED)));
+		} finally {
+			delete(directory);
+		}
+
+		System.out.println(checks + " checks, " + failures + " failed");
+
+		if(failures > 0)
+			System.exit(1);
+	}
+
+	/**
+	 * Imports a log with every thread count and compares the
+	 * traces with the expected ones, and the file names with
+	 * those of the first import.
+	 */
+	private static void checkLog(Path directory, String name, Log log) throws IOException {
+		Path file = directory.resolve(name + ".csv");
+		Files.write(file, log.text.toString().getBytes(StandardCharsets.UTF_8));
+
+		Map<String, Path> first = null;
+
+		for (int threads : THREADS){
+			String run = name + ", " + threads + " threads: ";
+			Path output = directory.resolve(name + "-" + threads);
+
+			TraceImporter importer = new TraceImporter(0, 1, ',', threads);
+			Map<String, Path> traces = importer.importLog(file, output);
+
+			compare(run, "skipped lines", log.skipped, importer.getSkippedLines());
+			compare(run, "clamped gaps", log.clamped, importer.getClampedGaps());
+			compare(run, "ids", sorted(log.times.keySet()).toString(), sorted(traces.keySet()).toString());
+
+			for (Map.Entry<String, List<Long>> entry : log.times.entrySet()){
+				Path trace = traces.get(entry.getKey());
+
+				if(trace == null)
+					continue;
+
+				compare(run + entry.getKey(), "trace", Arrays.toString(log.trace(entry.getKey())),
+						Arrays.toString(TraceReader.read(trace)));
+
+				if(first != null)
+					compare(run + entry.getKey(), "file name", first.get(entry.getKey()).getFileName().toString(),
+							trace.getFileName().toString());
+			}
+
+			try (Stream<Path> files = Files.list(output)) {
+				compare(run, "files", (long)traces.size(), files.count());
+			}
+
+			if(first == null)
+				first = traces;
+		}
+	}
+
+	private static List<String> sorted(Iterable<String> ids) {
+		List<String> list = new ArrayList<String>();
+
+		for (String id : ids)
+			list.add(id);
+
+		Collections.sort(list);
+		return list;
+	}
+
+	private static void compare(String run, String what, Object expected, Object actual) {
+		checks++;
+
+		if(!expected.equals(actual)){
+			failures++;
+			System.out.println(run + " " + what + " is " + actual + ", expected " + expected);
+		}
+	}
+
+	/**
+	 * Quoted ids and timestamps. A quoted id is the same
+	 * id as the unquoted one.
+	 */
+	private static Log quotes() {
+		Log log = new Log();
+
+		log.line("\"dev a\",100", "dev a", 100);
+		log.line("dev a,105", "dev a", 105);
+		log.line("\"dev a\",\"130\"", "dev a", 130);
+		log.line("\"b\",7", "b", 7);
+		log.line("\"\"c\"\",9", "\"c\"", 9);
+
+		return log;
+	}
+
+	/**
+	 * Lines ending in CRLF, with the id as the last column
+	 * as well, and a last line without a line break.
+	 */
+	private static Log crlf() {
+		Log log = new Log();
+
+		log.line("x,10\r", "x", 10);
+		log.line("y,12\r", "y", 12);
+		log.line("x,11\r", "x", 11);
+		log.line("x,10.75\r", "x", 10);
+		log.text.append("y,40\r");
+		log.times.get("y").add(40L);
+
+		return log;
+	}
+
+	/**
+	 * Header lines at the start and in the middle, which
+	 * are skipped, and blank lines, which are not counted.
+	 */
+	private static Log headers() {
+		Log log = new Log();
+
+		log.skip("id,timestamp");
+		log.line("d,5", "d", 5);
+		log.text.append("\n\r\n");
+		log.skip("id,timestamp\r");
+		log.line("d,3", "d", 3);
+		log.skip("e,");
+		log.skip("e");
+		log.skip("e,12abc");
+
+		return log;
+	}
+
+	/**
+	 * Timestamps too large for a long, which are skipped,
+	 * and inter-arrival times too large for a trace, which
+	 * are clamped without failing the import.
+	 */
+	private static Log overflow() {
+		Log log = new Log();
+
+		log.skip("o,99999999999999999999");
+		log.skip("o,9223372036854775808");
+		log.line("o,9223372036854775807", "o", Long.MAX_VALUE);
+		log.line("o,1", "o", 1);
+		log.line("o,2", "o", 2);
+		log.line("p,1", "p", 1);
+		log.line("p," + (1L << 40), "p", 1L << 40);
+		log.line("p," + ((1L << 40) + 5), "p", (1L << 40) + 5);
+		log.line("q,50", "q", 50);
+
+		log.clamped = 2;
+
+		return log;
+	}
+
+	/**
+	 * Ids that are turned into the same file name.
+	 */
+	private static Log names() {
+		Log log = new Log();
+
+		log.line("a b,1", "a b", 1);
+		log.line("a_b,2", "a_b", 2);
+		log.line("a/b,3", "a/b", 3);
+		log.line(".hidden,4", ".hidden", 4);
+		log.line("a b,9", "a b", 9);
+
+		return log;
+	}
+
+	/**
+	 * A log of many ids with unsorted, repeated timestamps,
+	 * quoted ids, CRLF lines and header lines, long enough
+	 * to be cut into a chunk per thread.
+	 */
+	private static Log random(Random random) {
+		Log log = new Log();
+
+		for (int i = 0; i < 60000; i++){
+			String id = "dev" + random.nextInt(2000);
+			long time = 1000000L + random.nextInt(1 << 24);
+
+			switch (random.nextInt(20)) {
+			case 0:
+				log.line("\"" + id + "\"," + time, id, time);
+				break;
+			case 1:
+				log.line(id + "," + time + "\r", id, time);
+				break;
+			case 2:
+				log.skip("id,time");
+				break;
+			default:
+				log.line(id + "," + time, id, time);
+			}
+		}
+
+		return log;
+	}
+
+	/**
+	 * Text of a log and the timestamps of every id expected
+	 * from it.
+	 */
+	private static class Log {
+
+		StringBuilder text = new StringBuilder();
+		Map<String, List<Long>> times = new LinkedHashMap<String, List<Long>>();
+		long skipped;
+		long clamped;
+
+		void line(String line, String id, long time) {
+			text.append(line).append('\n');
+			times.computeIfAbsent(id, k -> new ArrayList<Long>()).add(time);
+		}
+
+		void skip(String line) {
+			text.append(line).append('\n');
+			skipped++;
+		}
+
+		/**
+		 * The expected trace of an id: the first arrival one
+		 * time unit after the start, then the differences of
+		 * the sorted timestamps, clamped to an int.
+		 */
+		int[] trace(String id) {
+			List<Long> sorted = new ArrayList<Long>(times.get(id));
+			sorted.sort(Comparator.naturalOrder());
+
+			int[] IAT = new int[sorted.size()];
+			IAT[0] = 1;
+
+			for (int i = 1; i < IAT.length; i++)
+				IAT[i] = (int)Math.min(Integer.MAX_VALUE, sorted.get(i) - sorted.get(i - 1));
+
+			return IAT;
+		}
+	}
+
+	private static void delete(Path path) throws IOException {
+		if(Files.isDirectory(path)){
+			try (Stream<Path> files = Files.list(path)) {
+				for (Path file : (Iterable<Path>)files::iterator)
+					delete(file);
+			}
+		}
+
+		Files.deleteIfExists(path);
+	}
+}
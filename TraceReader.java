@@ -0,0 +1,316 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/**
+ * Class TraceReader
+ *
+ * Reads a binary trace file written by TraceWriter. The file
+ * is memory-mapped in windows of up to 1 GB, so traces of
+ * any size are read without parsing text or copying them to
+ * the heap. The checksum of every block is verified when
+ * the block is reached, unless verification is turned off.
+ *
+ * The reader is an arrival source, so a StreamSimulator can
+ * run directly over a trace file.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TraceReader implements ArrivalSource, Closeable {
+
+	// largest part of the file that is mapped at once
+	private static final long WINDOW_SIZE = 1L << 30;
+
+	private FileChannel channel;
+	private long fileSize;
+	private short encoding;
+	private long count;
+	private boolean verify;
+
+	// currently mapped part of the file
+	private MappedByteBuffer window;
+	private long windowStart;
+
+	// file offset of the next block header
+	private long nextBlock;
+
+	// position of the next value in the window and values left in its block
+	private int position;
+	private int blockRemaining;
+
+	private long read;
+	private CRC32 checksum = new CRC32();
+
+	/**
+	 * Constructor
+	 *
+	 * Opens a trace file and reads its header.
+	 *
+	 * @param file Path of the trace file
+	 * @param verify Whether block checksums are verified
+	 * @throws IOException If the file cannot be read or is not a trace file
+	 */
+	public TraceReader(Path file, boolean verify) throws IOException {
+		this.verify = verify;
+
+		channel = FileChannel.open(file, StandardOpenOption.READ);
+		fileSize = channel.size();
+
+		if(fileSize < TraceWriter.HEADER_SIZE){
+			channel.close();
+			throw new IOException("Not a trace file: " + file);
+		}
+
+		map(0, TraceWriter.HEADER_SIZE);
+
+		int magic = window.getInt(0);
+		short version = window.getShort(4);
+		encoding = window.getShort(6);
+		count = window.getLong(16);
+
+		if(magic != TraceWriter.MAGIC || version != TraceWriter.VERSION
+				|| (encoding != TraceWriter.FIXED && encoding != TraceWriter.VARINT)){
+			channel.close();
+			throw new IOException("Not a supported trace file: " + file);
+		}
+
+		nextBlock = TraceWriter.HEADER_SIZE;
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Opens a trace file with checksum verification.
+	 *
+	 * @param file Path of the trace file
+	 * @throws IOException If the file cannot be read or is not a trace file
+	 */
+	public TraceReader(Path file) throws IOException {
+		this(file, true);
+	}
+
+	/**
+	 * Reads a whole trace file into an array, for the code
+	 * that needs the inter-arrival times as an int array.
+	 *
+	 * @param file Path of the trace file
+	 * @return Array containing the inter-arrival times
+	 * @throws IOException If the file cannot be read or is corrupted
+	 */
+	public static int[] read(Path file) throws IOException {
+		TraceReader reader = new TraceReader(file);
+
+		try {
+			if(reader.getCount() > Integer.MAX_VALUE - 8)
+				throw new IOException("Trace is too long for an array: " + reader.getCount());
+
+			int[] IAT = new int[(int)reader.getCount()];
+
+			for(int i = 0; i < IAT.length; i++)
+				IAT[i] = reader.nextInt();
+
+			return IAT;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns the number of values in the trace
+	 *
+	 * @return The number of inter-arrival times
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	public boolean hasNext() {
+		return read < count;
+	}
+
+	public long next() {
+		return nextInt();
+	}
+
+	/**
+	 * Returns the next inter-arrival time.
+	 *
+	 * @return The next inter-arrival time
+	 * @throws NoSuchElementException If there are no more values
+	 * @throws IllegalStateException If the trace is corrupted
+	 */
+	public int nextInt() {
+		if(read == count)
+			throw new NoSuchElementException();
+
+		if(blockRemaining == 0)
+			openBlock();
+
+		int value;
+
+		if(encoding == TraceWriter.FIXED){
+			value = window.getInt(position);
+			position += 4;
+		} else {
+			int shift = 0;
+			byte b;
+			value = 0;
+
+			do {
+				b = window.get(position++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while(b < 0);
+		}
+
+		blockRemaining--;
+		read++;
+
+		return value;
+	}
+
+	/**
+	 * Skips inter-arrival times. Whole blocks are skipped
+	 * by their headers, without reading or verifying their
+	 * values, and fixed-size values by their position.
+	 *
+	 * @param n Number of inter-arrival times to skip
+	 * @return The number skipped, less than n if the trace ended
+	 * @throws IllegalStateException If the trace is corrupted
+	 */
+	public long skip(long n) {
+		long start = read;
+		long target = read + Math.max(0, Math.min(n, count - read));
+
+		while(read < target){
+			if(blockRemaining == 0 && skipBlock(target - read))
+				continue;
+
+			if(blockRemaining == 0)
+				openBlock();
+
+			int values = (int)Math.min(blockRemaining, target - read);
+
+			if(encoding == TraceWriter.FIXED){
+				position += 4 * values;
+			} else {
+				for(int k = 0; k < values; k++)
+					while(window.get(position++) < 0);
+			}
+
+			blockRemaining -= values;
+			read += values;
+		}
+
+		return read - start;
+	}
+
+	/**
+	 * Skips the next block if it has at most the given
+	 * number of values.
+	 *
+	 * @param limit Largest number of values to skip
+	 * @return true if the block was skipped
+	 */
+	private boolean skipBlock(long limit) {
+		try {
+			map(nextBlock, TraceWriter.BLOCK_HEADER_SIZE);
+
+			int offset = (int)(nextBlock - windowStart);
+			int values = window.getInt(offset);
+			int payloadBytes = window.getInt(offset + 4);
+
+			long payloadStart = nextBlock + TraceWriter.BLOCK_HEADER_SIZE;
+
+			if(values <= 0 || payloadBytes < 0 || payloadStart + payloadBytes > fileSize)
+				throw new IllegalStateException("Corrupted block at offset " + nextBlock);
+
+			if(values > limit)
+				return false;
+
+			nextBlock = payloadStart + payloadBytes;
+			read += values;
+
+			return true;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read trace", e);
+		}
+	}
+
+	/**
+	 * Moves to the next block, mapping it if needed and
+	 * verifying its checksum.
+	 */
+	private void openBlock() {
+		try {
+			map(nextBlock, TraceWriter.BLOCK_HEADER_SIZE);
+
+			int offset = (int)(nextBlock - windowStart);
+			int values = window.getInt(offset);
+			int payloadBytes = window.getInt(offset + 4);
+			int expected = window.getInt(offset + 8);
+
+			long payloadStart = nextBlock + TraceWriter.BLOCK_HEADER_SIZE;
+
+			if(values <= 0 || payloadBytes < 0 || payloadStart + payloadBytes > fileSize)
+				throw new IllegalStateException("Corrupted block at offset " + nextBlock);
+
+			map(payloadStart, payloadBytes);
+			position = (int)(payloadStart - windowStart);
+
+			if(verify){
+				MappedByteBuffer payload = window.duplicate();
+				payload.position(position);
+				payload.limit(position + payloadBytes);
+				checksum.reset();
+				checksum.update(payload);
+
+				if((int)checksum.getValue() != expected)
+					throw new IllegalStateException("Checksum mismatch in block at offset " + nextBlock);
+			}
+
+			blockRemaining = values;
+			nextBlock = payloadStart + payloadBytes;
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read trace", e);
+		}
+	}
+
+	/**
+	 * Makes sure that the given part of the file is mapped.
+	 *
+	 * @param offset File offset of the first byte
+	 * @param length Number of bytes needed
+	 * @throws IOException If the file cannot be mapped
+	 */
+	private void map(long offset, int length) throws IOException {
+		if(window != null && offset >= windowStart && offset + length <= windowStart + window.capacity())
+			return;
+
+		if(offset + length > fileSize)
+			throw new IllegalStateException("Trace ends unexpectedly at offset " + offset);
+
+		long size = Math.max(length, Math.min(WINDOW_SIZE, fileSize - offset));
+
+		window = channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+		window.order(ByteOrder.LITTLE_ENDIAN);
+		windowStart = offset;
+	}
+
+	/**
+	 * Closes the trace file.
+	 *
+	 * @throws IOException If the file cannot be closed
+	 */
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+}
@@ -0,0 +1,236 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Class TraceWriter
+ *
+ * Writes a sequence of inter-arrival times to a binary trace
+ * file. All numbers are little-endian. The file starts with
+ * a header:
+ *
+ *   int   magic, the bytes "IATR"
+ *   short format version
+ *   short encoding of the values, FIXED or VARINT
+ *   int   maximum number of values per block
+ *   int   reserved, 0
+ *   long  number of values
+ *   long  number of blocks
+ *
+ * The values follow in blocks, each with its own header:
+ *
+ *   int   number of values in the block
+ *   int   number of payload bytes
+ *   int   CRC32 checksum of the payload
+ *
+ * With the FIXED encoding every value takes 4 bytes. With
+ * the VARINT encoding every value takes 1 to 5 bytes, 7 bits
+ * per byte with the highest bit set on all but the last byte.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class TraceWriter implements Closeable {
+
+	public static final int MAGIC = 0x52544149; // "IATR" in little-endian order
+	public static final short VERSION = 1;
+	public static final short FIXED = 0;
+	public static final short VARINT = 1;
+	public static final int HEADER_SIZE = 32;
+	public static final int BLOCK_HEADER_SIZE = 12;
+	public static final int DEFAULT_BLOCK_SIZE = 65536;
+
+	// largest encoded size of a single value
+	static final int MAX_VALUE_SIZE = 5;
+
+	private FileChannel channel;
+	private short encoding;
+	private int blockSize;
+
+	private ByteBuffer block;
+	private int blockCount;
+	private long totalCount;
+	private long totalBlocks;
+	private CRC32 checksum = new CRC32();
+
+	/**
+	 * Constructor
+	 *
+	 * Creates the trace file, replacing any existing file.
+	 *
+	 * @param file Path of the trace file
+	 * @param encoding FIXED or VARINT
+	 * @param blockSize Number of values per block
+	 * @throws IOException If the file cannot be created
+	 */
+	public TraceWriter(Path file, short encoding, int blockSize) throws IOException {
+		if(encoding != FIXED && encoding != VARINT)
+			throw new IllegalArgumentException("Unknown encoding: " + encoding);
+
+		if(blockSize <= 0 || blockSize > (Integer.MAX_VALUE - BLOCK_HEADER_SIZE) / MAX_VALUE_SIZE)
+			throw new IllegalArgumentException("Invalid block size: " + blockSize);
+
+		this.encoding = encoding;
+		this.blockSize = blockSize;
+
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+
+		block = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE + (blockSize * MAX_VALUE_SIZE));
+		block.order(ByteOrder.LITTLE_ENDIAN);
+		block.position(BLOCK_HEADER_SIZE);
+
+		// the header is written again with the final counts on close
+		channel.position(0);
+		writeHeader();
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * Creates a trace file with fixed-width values and
+	 * the default block size.
+	 *
+	 * @param file Path of the trace file
+	 * @throws IOException If the file cannot be created
+	 */
+	public TraceWriter(Path file) throws IOException {
+		this(file, FIXED, DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * Writes a trace file holding the given inter-arrival times.
+	 *
+	 * @param file Path of the trace file
+	 * @param IAT Sequence of inter-arrival times
+	 * @param encoding FIXED or VARINT
+	 * @throws IOException If the file cannot be written
+	 */
+	public static void write(Path file, int[] IAT, short encoding) throws IOException {
+		TraceWriter writer = new TraceWriter(file, encoding, DEFAULT_BLOCK_SIZE);
+
+		try {
+			writer.write(IAT);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Appends an inter-arrival time to the trace.
+	 *
+	 * @param iat Time between the previous arrival and this one, not negative
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(int iat) throws IOException {
+		if(iat < 0)
+			throw new IllegalArgumentException("Negative inter-arrival time: " + iat);
+
+		if(encoding == FIXED){
+			block.putInt(iat);
+		} else {
+			while((iat & ~0x7F) != 0){
+				block.put((byte)((iat & 0x7F) | 0x80));
+				iat >>>= 7;
+			}
+
+			block.put((byte)iat);
+		}
+
+		blockCount++;
+		totalCount++;
+
+		if(blockCount == blockSize)
+			flushBlock();
+	}
+
+	/**
+	 * Appends a sequence of inter-arrival times to the trace.
+	 *
+	 * @param IAT Sequence of inter-arrival times
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(int[] IAT) throws IOException {
+		for(int i = 0; i < IAT.length; i++)
+			write(IAT[i]);
+	}
+
+	/**
+	 * Writes the current block with its header and checksum.
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	private void flushBlock() throws IOException {
+		if(blockCount == 0)
+			return;
+
+		int payloadBytes = block.position() - BLOCK_HEADER_SIZE;
+
+		ByteBuffer payload = block.duplicate();
+		payload.position(BLOCK_HEADER_SIZE);
+		payload.limit(BLOCK_HEADER_SIZE + payloadBytes);
+		checksum.reset();
+		checksum.update(payload);
+
+		block.putInt(0, blockCount);
+		block.putInt(4, payloadBytes);
+		block.putInt(8, (int)checksum.getValue());
+
+		block.flip();
+
+		while(block.hasRemaining())
+			channel.write(block);
+
+		block.clear();
+		block.position(BLOCK_HEADER_SIZE);
+		blockCount = 0;
+		totalBlocks++;
+	}
+
+	/**
+	 * Writes the file header at the current position of
+	 * the channel.
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	private void writeHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.order(ByteOrder.LITTLE_ENDIAN);
+
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort(encoding);
+		header.putInt(blockSize);
+		header.putInt(0);
+		header.putLong(totalCount);
+		header.putLong(totalBlocks);
+		header.flip();
+
+		while(header.hasRemaining())
+			channel.write(header);
+	}
+
+	/**
+	 * Writes the last block and the final header, and
+	 * closes the file.
+	 *
+	 * @throws IOException If the file cannot be written
+	 */
+	public void close() throws IOException {
+		if(!channel.isOpen())
+			return;
+
+		try {
+			flushBlock();
+			channel.position(0);
+			writeHeader();
+		} finally {
+			channel.close();
+		}
+	}
+}
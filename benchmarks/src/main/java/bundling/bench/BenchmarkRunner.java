@@ -0,0 +1,41 @@
+package bundling.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the
+ * allocation rate and the bytes allocated per operation to
+ * every result. The results are also written to
+ * jmh-result.json so they can be compared across changes.
+ * Other JMH options are passed through, so a short run is,
+ * for example, "-f 1 -wi 1 -i 1 -w 200ms -r 200ms".
+ *
+ * Usage: java -cp target/benchmarks.jar bundling.bench.BenchmarkRunner [JMH options] [regex]
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions command = new CommandLineOptions(args);
+
+		ChainedOptionsBuilder options = new OptionsBuilder()
+				.parent(command)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("jmh-result.json");
+
+		if(command.getIncludes().isEmpty())
+			options.include(BenchmarkRunner.class.getPackageName() + ".*");
+
+		new Runner(options.build()).run();
+	}
+}
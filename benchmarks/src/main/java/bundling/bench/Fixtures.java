@@ -0,0 +1,45 @@
+package bundling.bench;
+
+/**
+ * Traces shared by the benchmarks. All of them are generated
+ * with TraceGenerator from a fixed seed, so every run of a
+ * benchmark sees the same arrivals.
+ *
+ *   bursty     bursts of back-to-back requests separated by
+ *              exponential short and long gaps, as produced
+ *              by applications syncing in the background
+ *   lognormal  heavy-tailed gaps with mean 400 and standard
+ *              deviation 1200, as seen in interactive traffic
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+final class Fixtures {
+
+	static final int T = 200;
+	static final long SEED = 111;
+
+	// length of the traces of the per-event benchmarks
+	static final int EVENTS = 100000;
+
+	private Fixtures() {
+	}
+
+	/**
+	 * Generates a fixture trace.
+	 *
+	 * @param kind "bursty" or "lognormal"
+	 * @param length Size of the trace
+	 * @return Array containing the inter-arrival times
+	 */
+	static int[] trace(String kind, int length) {
+		switch(kind){
+		case "bursty":
+			return Targets.burstyTrace(SEED, length);
+		case "lognormal":
+			return Targets.logNormalTrace(SEED, length, 400, 1200);
+		default:
+			throw new IllegalArgumentException("Unknown trace: " + kind);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package bundling.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of FleetSimulator.run(). The fleet has DEVICES
+ * devices with the same tail time and alpha values cycling
+ * through a few orders of magnitude. The trace of every
+ * device is a slice of a shared fixture trace, starting at a
+ * different position.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class FleetBenchmark {
+
+	static final int DEVICES = 100000;
+
+	private static final double[] ALPHAS = {0.0001, 0.001, 0.01, 0.1};
+
+	@Param({"bursty", "lognormal"})
+	public String trace;
+
+	@Param({"100", "1000"})
+	public int arrivals;
+
+	int[] T;
+	double[] alpha;
+	int[][] traces;
+
+	@Setup
+	public void setup() {
+		int[] shared = Fixtures.trace(trace, Fixtures.EVENTS);
+
+		T = new int[DEVICES];
+		alpha = new double[DEVICES];
+		traces = new int[DEVICES][];
+
+		for(int d = 0; d < DEVICES; d++){
+			int start = (int)((d * 37L) % (shared.length - arrivals));
+
+			T[d] = Fixtures.T;
+			alpha[d] = ALPHAS[d % ALPHAS.length];
+			traces[d] = Arrays.copyOfRange(shared, start, start + arrivals);
+		}
+	}
+
+	@Benchmark
+	public Object run() {
+		return Targets.simulateFleet(T, alpha, traces);
+	}
+}
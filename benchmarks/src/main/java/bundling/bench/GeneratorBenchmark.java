@@ -0,0 +1,99 @@
+package bundling.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the RandomIAT generate methods, next to the
+ * TraceGenerator distributions that replace them.
+ *
+ * generateNormalIAT and generateLogNormalIAT print to the
+ * standard output, which is discarded while the benchmarks
+ * run but still formatted. generateBurstyIAT uses up the
+ * values RandomIAT draws in its constructor, so it gets a
+ * new RandomIAT on every call and the constructor is part
+ * of the measurement.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+	@Param({"1000", "100000"})
+	public int n;
+
+	private Object random;
+	private PrintStream out;
+
+	@Setup(Level.Trial)
+	public void silence() {
+		out = System.out;
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+	}
+
+	@TearDown(Level.Trial)
+	public void restore() {
+		System.setOut(out);
+	}
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		random = Targets.randomIAT();
+	}
+
+	@Benchmark
+	public int[] randomBursty() {
+		return Targets.generateBurstyIAT(Targets.randomIAT());
+	}
+
+	@Benchmark
+	public int[] randomConstant() {
+		return Targets.generateConstantIAT(random, n, Fixtures.T);
+	}
+
+	@Benchmark
+	public int[] randomLogNormal() {
+		return Targets.generateLogNormalIAT(random, n, Fixtures.T, 400, 1200);
+	}
+
+	@Benchmark
+	public int[] randomNormal() {
+		return Targets.generateNormalIAT(random, n, Fixtures.T, 200, 80);
+	}
+
+	@Benchmark
+	public int[] generatorBursty() {
+		return Targets.burstyTrace(Fixtures.SEED, n);
+	}
+
+	@Benchmark
+	public int[] generatorLogNormal() {
+		return Targets.logNormalTrace(Fixtures.SEED, n, 400, 1200);
+	}
+
+	@Benchmark
+	public int[] generatorNormal() {
+		return Targets.normalTrace(Fixtures.SEED, n, 200, 80);
+	}
+}
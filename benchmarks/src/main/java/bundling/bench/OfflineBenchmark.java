@@ -0,0 +1,59 @@
+package bundling.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the offline optimum: the dynamic program of
+ * Offline.run() and the hull-based HullOffline.run(), for
+ * several trace lengths and alpha values. Small alpha values
+ * give long bundles, which is the slow case of Offline.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class OfflineBenchmark {
+
+	@Param({"bursty", "lognormal"})
+	public String trace;
+
+	@Param({"1000", "10000", "100000"})
+	public int n;
+
+	@Param({"0.0001", "0.01", "1"})
+	public double alpha;
+
+	int[] IAT;
+
+	@Setup
+	public void setup() {
+		IAT = Fixtures.trace(trace, n);
+	}
+
+	@Benchmark
+	public int[] offline() {
+		return Targets.offline(Fixtures.T, IAT, alpha);
+	}
+
+	@Benchmark
+	public int[] hullOffline() {
+		return Targets.hullOffline(Fixtures.T, IAT, alpha);
+	}
+}
@@ -0,0 +1,91 @@
+package bundling.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of Simulator.run() with both engines.
+ *
+ * perTrace reports the time of a whole run for traces of
+ * different lengths. perEvent runs a trace of Fixtures.EVENTS
+ * arrivals and reports the time per arrival, so its inverse
+ * is the number of arrivals simulated per second.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SimulatorBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class TraceState {
+
+		@Param({"bursty", "lognormal"})
+		public String trace;
+
+		@Param({"10000", "1000000"})
+		public int n;
+
+		@Param({"0.001", "0.1"})
+		public double alpha;
+
+		@Param({"false", "true"})
+		public boolean eventFree;
+
+		int[] IAT;
+
+		@Setup
+		public void setup() {
+			IAT = Fixtures.trace(trace, n);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class EventState {
+
+		@Param({"bursty", "lognormal"})
+		public String trace;
+
+		@Param({"0.001", "0.1"})
+		public double alpha;
+
+		@Param({"false", "true"})
+		public boolean eventFree;
+
+		int[] IAT;
+
+		@Setup
+		public void setup() {
+			IAT = Fixtures.trace(trace, Fixtures.EVENTS);
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Object perTrace(TraceState state) {
+		return Targets.simulate(Fixtures.T, state.IAT, state.alpha, state.eventFree);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@OperationsPerInvocation(Fixtures.EVENTS)
+	public Object perEvent(EventState state) {
+		return Targets.simulate(Fixtures.T, state.IAT, state.alpha, state.eventFree);
+	}
+}
@@ -0,0 +1,287 @@
+package bundling.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Access to the simulator classes, which live in the default
+ * package and cannot be imported from a named package. JMH
+ * does not accept benchmarks in the default package, so the
+ * benchmarks call the simulator through method handles kept
+ * in static final fields, which the JIT compiles like direct
+ * calls.
+ *
+ * @author Ali Sehati
+ * @version 1.0
+ */
+final class Targets {
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+	private static final MethodHandle SIMULATOR_NEW = constructor("Simulator", int.class, int[].class);
+	private static final MethodHandle SIMULATOR_SET_ALPHA = method("Simulator", "setAlpha", void.class, double.class);
+	private static final MethodHandle SIMULATOR_SET_EVENT_FREE = method("Simulator", "setEventFree", void.class, boolean.class);
+	private static final MethodHandle SIMULATOR_INITIALIZE = method("Simulator", "initialize", void.class);
+	private static final MethodHandle SIMULATOR_RUN = method("Simulator", "run", void.class);
+	private static final MethodHandle SIMULATOR_GET_REPORT = method("Simulator", "getReport", type("Report"));
+
+	private static final MethodHandle OFFLINE_NEW = constructor("Offline", int.class, int[].class);
+	private static final MethodHandle OFFLINE_SET_ALPHA = method("Offline", "setAlpha", void.class, double.class);
+	private static final MethodHandle OFFLINE_INITIALIZE = method("Offline", "initialize", void.class);
+	private static final MethodHandle OFFLINE_RUN = method("Offline", "run", void.class);
+	private static final MethodHandle OFFLINE_GET_GRANT_TIMES = method("Offline", "getGrantTimes", int[].class);
+
+	private static final MethodHandle HULL_NEW = constructor("HullOffline", int.class, int[].class);
+	private static final MethodHandle HULL_SET_ALPHA = method("HullOffline", "setAlpha", void.class, double.class);
+	private static final MethodHandle HULL_INITIALIZE = method("HullOffline", "initialize", void.class);
+	private static final MethodHandle HULL_RUN = method("HullOffline", "run", void.class);
+	private static final MethodHandle HULL_GET_GRANT_TIMES = method("HullOffline", "getGrantTimes", int[].class);
+
+	private static final MethodHandle RANDOM_NEW = constructor("RandomIAT");
+	private static final MethodHandle RANDOM_BURSTY = method("RandomIAT", "generateBurstyIAT", int[].class);
+	private static final MethodHandle RANDOM_CONSTANT = method("RandomIAT", "generateConstantIAT", int[].class,
+			int.class, int.class);
+	private static final MethodHandle RANDOM_LOG_NORMAL = method("RandomIAT", "generateLogNormalIAT", int[].class,
+			int.class, int.class, double.class, double.class);
+	private static final MethodHandle RANDOM_NORMAL = method("RandomIAT", "generateNormalIAT", int[].class,
+			int.class, int.class, double.class, double.class);
+
+	private static final MethodHandle GENERATOR_NEW = constructor("TraceGenerator", long.class);
+	private static final MethodHandle GENERATOR_GENERATE = method("TraceGenerator", "generate", int[].class,
+			int.class, type("TraceGenerator$Distribution"));
+	private static final MethodHandle GENERATOR_BURSTY = staticMethod("TraceGenerator", "bursty",
+			type("TraceGenerator$Distribution"));
+	private static final MethodHandle GENERATOR_LOG_NORMAL = staticMethod("TraceGenerator", "logNormal",
+			type("TraceGenerator$Distribution"), double.class, double.class);
+	private static final MethodHandle GENERATOR_NORMAL = staticMethod("TraceGenerator", "normal",
+			type("TraceGenerator$Distribution"), double.class, double.class);
+
+	private static final MethodHandle FLEET_NEW = constructor("FleetSimulator", int[].class, double[].class,
+			int[][].class);
+	private static final MethodHandle FLEET_RUN = method("FleetSimulator", "run", type("FleetReport"));
+
+	private Targets() {
+	}
+
+	/**
+	 * Runs the break-even simulator over a trace.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param alpha Weight given to delay
+	 * @param eventFree Whether the event-free engine is used
+	 * @return The report of the run
+	 */
+	static Object simulate(int T, int[] IAT, double alpha, boolean eventFree) {
+		try {
+			Object simulator = SIMULATOR_NEW.invoke(T, IAT);
+			SIMULATOR_SET_ALPHA.invoke(simulator, alpha);
+			SIMULATOR_SET_EVENT_FREE.invoke(simulator, eventFree);
+			SIMULATOR_INITIALIZE.invoke(simulator);
+			SIMULATOR_RUN.invoke(simulator);
+
+			return SIMULATOR_GET_REPORT.invoke(simulator);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Runs the dynamic program of Offline over a trace.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param alpha Weight given to delay
+	 * @return The grant times of the optimal solution
+	 */
+	static int[] offline(int T, int[] IAT, double alpha) {
+		try {
+			Object offline = OFFLINE_NEW.invoke(T, IAT);
+			OFFLINE_SET_ALPHA.invoke(offline, alpha);
+			OFFLINE_INITIALIZE.invoke(offline);
+			OFFLINE_RUN.invoke(offline);
+
+			return (int[])OFFLINE_GET_GRANT_TIMES.invoke(offline);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Runs HullOffline over a trace.
+	 *
+	 * @param T Radio tail time
+	 * @param IAT Sequence of inter-arrival times
+	 * @param alpha Weight given to delay
+	 * @return The grant times of the optimal solution
+	 */
+	static int[] hullOffline(int T, int[] IAT, double alpha) {
+		try {
+			Object offline = HULL_NEW.invoke(T, IAT);
+			HULL_SET_ALPHA.invoke(offline, alpha);
+			HULL_INITIALIZE.invoke(offline);
+			HULL_RUN.invoke(offline);
+
+			return (int[])HULL_GET_GRANT_TIMES.invoke(offline);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Runs FleetSimulator over the traces of a fleet.
+	 *
+	 * @param T Radio tail time of every device
+	 * @param alpha Weight given to delay by every device
+	 * @param traces Inter-arrival times of every device
+	 * @return The report of the fleet
+	 */
+	static Object simulateFleet(int[] T, double[] alpha, int[][] traces) {
+		try {
+			Object fleet = FLEET_NEW.invoke(T, alpha, traces);
+
+			return FLEET_RUN.invoke(fleet);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Creates a RandomIAT with its fixed seed.
+	 *
+	 * @return A new RandomIAT
+	 */
+	static Object randomIAT() {
+		try {
+			return RANDOM_NEW.invoke();
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static int[] generateBurstyIAT(Object random) {
+		try {
+			return (int[])RANDOM_BURSTY.invoke(random);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static int[] generateConstantIAT(Object random, int itemLen, int interval) {
+		try {
+			return (int[])RANDOM_CONSTANT.invoke(random, itemLen, interval);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static int[] generateLogNormalIAT(Object random, int itemLen, int T, double mean, double std) {
+		try {
+			return (int[])RANDOM_LOG_NORMAL.invoke(random, itemLen, T, mean, std);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	static int[] generateNormalIAT(Object random, int itemLen, int T, double mu, double sigma) {
+		try {
+			return (int[])RANDOM_NORMAL.invoke(random, itemLen, T, mu, sigma);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Generates a bursty trace with TraceGenerator.
+	 *
+	 * @param seed Seed of the trace
+	 * @param length Size of the trace
+	 * @return Array containing the inter-arrival times
+	 */
+	static int[] burstyTrace(long seed, int length) {
+		try {
+			return (int[])GENERATOR_GENERATE.invoke(GENERATOR_NEW.invoke(seed), length, GENERATOR_BURSTY.invoke());
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Generates a log-normal trace with TraceGenerator.
+	 *
+	 * @param seed Seed of the trace
+	 * @param length Size of the trace
+	 * @param mean Mean of the inter-arrival times
+	 * @param std Standard deviation of the inter-arrival times
+	 * @return Array containing the inter-arrival times
+	 */
+	static int[] logNormalTrace(long seed, int length, double mean, double std) {
+		try {
+			return (int[])GENERATOR_GENERATE.invoke(GENERATOR_NEW.invoke(seed), length,
+					GENERATOR_LOG_NORMAL.invoke(mean, std));
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	/**
+	 * Generates a normal trace with TraceGenerator.
+	 *
+	 * @param seed Seed of the trace
+	 * @param length Size of the trace
+	 * @param mu Mean of the inter-arrival times
+	 * @param sigma Standard deviation of the inter-arrival times
+	 * @return Array containing the inter-arrival times
+	 */
+	static int[] normalTrace(long seed, int length, double mu, double sigma) {
+		try {
+			return (int[])GENERATOR_GENERATE.invoke(GENERATOR_NEW.invoke(seed), length,
+					GENERATOR_NORMAL.invoke(mu, sigma));
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static Class<?> type(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Simulator class not found: " + name, e);
+		}
+	}
+
+	private static MethodHandle constructor(String owner, Class<?>... parameters) {
+		try {
+			return LOOKUP.findConstructor(type(owner), MethodType.methodType(void.class, parameters));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Constructor not found in " + owner, e);
+		}
+	}
+
+	private static MethodHandle method(String owner, String name, Class<?> result, Class<?>... parameters) {
+		try {
+			return LOOKUP.findVirtual(type(owner), name, MethodType.methodType(result, parameters));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Method not found: " + owner + "." + name, e);
+		}
+	}
+
+	private static MethodHandle staticMethod(String owner, String name, Class<?> result, Class<?>... parameters) {
+		try {
+			return LOOKUP.findStatic(type(owner), name, MethodType.methodType(result, parameters));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Method not found: " + owner + "." + name, e);
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if(e instanceof RuntimeException)
+			return (RuntimeException)e;
+
+		if(e instanceof Error)
+			throw (Error)e;
+
+		return new IllegalStateException(e);
+	}
+}